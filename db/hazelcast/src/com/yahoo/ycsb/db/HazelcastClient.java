@@ -16,6 +16,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IMap;
+import com.hazelcast.core.Transaction;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 
@@ -336,6 +337,66 @@ public class HazelcastClient extends DB {
         return 0;
     }
 
+    /**
+     * Returns the transaction of the calling thread. Hazelcast binds
+     * transactions to threads, and there is one DB instance per client thread.
+     */
+    protected Transaction getTransaction() {
+        if (this.superclient) {
+            return Hazelcast.getTransaction();
+        } else {
+            return _client.getTransaction();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.yahoo.ycsb.DB#beginTransaction()
+     */
+    @Override
+    public int beginTransaction() {
+        try {
+            getTransaction().begin();
+        } catch (Exception e1) {
+            log("error", e1 + "", e1);
+            return 1;
+        }
+        return 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.yahoo.ycsb.DB#commitTransaction()
+     */
+    @Override
+    public int commitTransaction() {
+        try {
+            getTransaction().commit();
+        } catch (Exception e1) {
+            log("error", e1 + "", e1);
+            return 1;
+        }
+        return 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.yahoo.ycsb.DB#abortTransaction()
+     */
+    @Override
+    public int abortTransaction() {
+        try {
+            getTransaction().rollback();
+        } catch (Exception e1) {
+            log("error", e1 + "", e1);
+            return 1;
+        }
+        return 0;
+    }
+
     /**
      * Simple logging method.
      * 
@@ -43,7 +43,7 @@ public class BasicDB extends DB
 
 	public BasicDB()
 	{
-		random=new Random();
+		random=Utils.newRandom();
 		todelay=0;
 	}
 
@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.Vector;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurementRatio;
+
+/**
+ * A DB layer that puts a cache binding in front of a backing binding, the way an application uses a cache-aside
+ * cache. A read tries the cache first; on a miss it reads the whole record from the backing store and populates the cache
+ * with it. Writes go to the backing store, and then either update the cache (write-through) or remove the record from 
+ * it (invalidate). Scans go to the backing store.
+ * 
+ * Both bindings get the same properties. Their operations are measured separately, as CACHE-READ, BACKING-READ and so on,
+ * while the usual READ, UPDATE, ... measurements cover the whole cache-aside operation. In addition, CACHE-HIT-RATIO
+ * reports how many reads were served by the cache, and MISS-PENALTY the time a miss spends reading the backing
+ * store and populating the cache.
+ * 
+ * Properties to control the DB:
+ * <UL>
+ * <LI><b>cacheaside.cache</b>: the DB class of the cache (required)
+ * <LI><b>cacheaside.backing</b>: the DB class of the backing store (required)
+ * <LI><b>cacheaside.writepolicy</b>: what writes do to the cache - "writethrough" (update or insert the record in the cache) or "invalidate" (delete the record from the cache) (default: invalidate)
+ * </UL>
+ */
+public class CacheAsideDB extends DB
+{
+	public static final String CACHE="cacheaside.cache";
+	
+	public static final String BACKING="cacheaside.backing";
+	
+	public static final String WRITE_POLICY="cacheaside.writepolicy";
+	public static final String WRITE_POLICY_DEFAULT="invalidate";
+	
+	public static final String HIT_RATIO="CACHE-HIT-RATIO";
+	
+	public static final String MISS_PENALTY="MISS-PENALTY";
+	
+	DB _cache;
+	DB _backing;
+	boolean _writethrough;
+	Measurements _measurements;
+
+	/**
+	 * Initialize any state for this DB.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void init() throws DBException
+	{
+		String cachename=getProperties().getProperty(CACHE);
+		String backingname=getProperties().getProperty(BACKING);
+		if ( (cachename==null) || (backingname==null) )
+		{
+			throw new DBException("Both "+CACHE+" and "+BACKING+" must be set");
+		}
+		
+		String writepolicy=getProperties().getProperty(WRITE_POLICY,WRITE_POLICY_DEFAULT);
+		if (writepolicy.compareTo("writethrough")==0)
+		{
+			_writethrough=true;
+		}
+		else if (writepolicy.compareTo("invalidate")==0)
+		{
+			_writethrough=false;
+		}
+		else
+		{
+			throw new DBException("Unknown write policy \""+writepolicy+"\"");
+		}
+		
+		try
+		{
+			_cache=DBFactory.newDB(cachename,getProperties(),"CACHE-");
+			_backing=DBFactory.newDB(backingname,getProperties(),"BACKING-");
+		}
+		catch (UnknownDBException e)
+		{
+			throw new DBException(e);
+		}
+		if ( (_cache==null) || (_backing==null) )
+		{
+			throw new DBException("Unknown DB "+(_cache==null ? cachename : backingname));
+		}
+		
+		_measurements=Measurements.getMeasurements();
+		_measurements.register(new OneMeasurementRatio(_measurements.name(HIT_RATIO)));
+		
+		_cache.init();
+		_backing.init();
+	}
+
+	/**
+	 * Cleanup any state for this DB.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void cleanup() throws DBException
+	{
+		_cache.cleanup();
+		_backing.cleanup();
+	}
+
+	/**
+	 * Read a record, from the cache if it is there, and otherwise from the backing store, populating the cache.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A HashMap of field/value pairs for the result
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int read(String table, String key, Set<String> fields, HashMap<String,String> result)
+	{
+		int res=_cache.read(table,key,fields,result);
+		if ( (res==0) && (!result.isEmpty()) )
+		{
+			_measurements.measure(HIT_RATIO,1);
+			return 0;
+		}
+		_measurements.measure(HIT_RATIO,0);
+		result.clear();
+		
+		long st=System.currentTimeMillis();
+		
+		//the cache holds whole records, so read all of the fields
+		HashMap<String,String> record=new HashMap<String,String>();
+		res=_backing.read(table,key,null,record);
+		if (res==0)
+		{
+			_cache.insert(table,key,record);
+		}
+		
+		long en=System.currentTimeMillis();
+		_measurements.measure(MISS_PENALTY,(int)(en-st));
+		
+		if (fields==null)
+		{
+			result.putAll(record);
+		}
+		else
+		{
+			for (String field : fields)
+			{
+				String value=record.get(field);
+				if (value!=null)
+				{
+					result.put(field,value);
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Perform a range scan on the backing store.
+	 *
+	 * @param table The name of the table
+	 * @param startkey The record key of the first record to read.
+	 * @param recordcount The number of records to read
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,String>> result)
+	{
+		return _backing.scan(table,startkey,recordcount,fields,result);
+	}
+
+	/**
+	 * Update a record in the backing store, then update it in or remove it from the cache.
+	 * A write-through update of a record that is not cached may fail in the cache; that does not fail the update.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param values A HashMap of field/value pairs to update in the record
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int update(String table, String key, HashMap<String,String> values)
+	{
+		int res=_backing.update(table,key,values);
+		if (res==0)
+		{
+			if (_writethrough)
+			{
+				_cache.update(table,key,values);
+			}
+			else
+			{
+				_cache.delete(table,key);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Insert a record in the backing store, and for write-through, in the cache.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to insert.
+	 * @param values A HashMap of field/value pairs to insert in the record
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int insert(String table, String key, HashMap<String,String> values)
+	{
+		int res=_backing.insert(table,key,values);
+		if ( (res==0) && (_writethrough) )
+		{
+			_cache.insert(table,key,values);
+		}
+		return res;
+	}
+
+	/**
+	 * Delete a record from the backing store and from the cache.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to delete.
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int delete(String table, String key)
+	{
+		int res=_backing.delete(table,key);
+		_cache.delete(table,key);
+		return res;
+	}
+
+	/**
+	 * Start a transaction on the backing store.
+	 */
+	public int beginTransaction()
+	{
+		return _backing.beginTransaction();
+	}
+
+	/**
+	 * Commit a transaction on the backing store.
+	 */
+	public int commitTransaction()
+	{
+		return _backing.commitTransaction();
+	}
+
+	/**
+	 * Roll back a transaction on the backing store.
+	 */
+	public int abortTransaction()
+	{
+		return _backing.abortTransaction();
+	}
+}
@@ -21,8 +21,18 @@ package com.yahoo.ycsb;
 import java.io.*;
 import java.text.DecimalFormat;
 import java.util.*;
-
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import com.yahoo.ycsb.generator.ArrivalGenerator;
+import com.yahoo.ycsb.generator.DiurnalArrivalGenerator;
+import com.yahoo.ycsb.generator.MarkovModulatedArrivalGenerator;
+import com.yahoo.ycsb.generator.OnOffArrivalGenerator;
+import com.yahoo.ycsb.generator.PoissonArrivalGenerator;
+import com.yahoo.ycsb.generator.UniformArrivalGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.PauseMonitor;
+import com.yahoo.ycsb.measurements.TargetEvent;
+import com.yahoo.ycsb.measurements.ThreadSummary;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
 
@@ -61,6 +71,8 @@ class StatusThread extends Thread
 
 		long lasten=st;
 		long lasttotalops=0;
+		long lasttotalbytes=0;
+		long[] lastops=new long[_threads.size()];
 		
 		boolean alldone;
 
@@ -68,51 +80,63 @@ class StatusThread extends Thread
 		{
 			alldone=true;
 
-			int totalops=0;
+			long totalops=0;
+			long[] ops=new long[_threads.size()];
 
 			//terminate this thread when all the worker threads are done
-			for (Thread t : _threads)
+			for (int i=0; i<_threads.size(); i++)
 			{
+				Thread t=_threads.get(i);
 				if (t.getState()!=Thread.State.TERMINATED)
 				{
 					alldone=false;
 				}
 
 				ClientThread ct=(ClientThread)t;
-				totalops+=ct.getOpsDone();
+				ops[i]=ct.getOpsDone();
+				totalops+=ops[i];
 			}
 
+			long totalbytes=Measurements.getMeasurements().getTotalBytes();
+
 			long en=System.currentTimeMillis();
 
 			long interval=en-st;
 			//double throughput=1000.0*((double)totalops)/((double)interval);
 
 			double curthroughput=1000.0*(((double)(totalops-lasttotalops))/((double)(en-lasten)));
+			double curmbthroughput=1000.0*(((totalbytes-lasttotalbytes)/Measurements.BYTES_PER_MB)/((double)(en-lasten)));
+			
+			//how evenly the threads progressed, to show threads that are starved or stuck
+			double[] threadthroughputs=new double[ops.length];
+			for (int i=0; i<ops.length; i++)
+			{
+				threadthroughputs[i]=1000.0*(((double)(ops[i]-lastops[i]))/((double)(en-lasten)));
+			}
+			double[] spread=ThreadSummary.spread(threadthroughputs);
+			lastops=ops;
 			
 			lasttotalops=totalops;
+			lasttotalbytes=totalbytes;
 			lasten=en;
 			
 			DecimalFormat d = new DecimalFormat("#.##");
 			
+			String msg;
 			if (totalops==0)
 			{
-				System.err.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+Measurements.getMeasurements().getSummary());
+				msg=_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+Measurements.getMeasurements().getSummary();
 			}
 			else
 			{
-				System.err.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+d.format(curthroughput)+" current ops/sec; "+Measurements.getMeasurements().getSummary());
+				msg=_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+d.format(curthroughput)+" current ops/sec; "+d.format(curmbthroughput)+" current MB/sec; thread ops/sec min/max/stddev "+d.format(spread[0])+"/"+d.format(spread[1])+"/"+d.format(spread[2])+"; "+Measurements.getMeasurements().getSummary();
 			}
 
+			System.err.println(msg);
+
 			if (_standardstatus)
 			{
-			if (totalops==0)
-			{
-				System.out.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+Measurements.getMeasurements().getSummary());
-			}
-			else
-			{
-				System.out.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+d.format(curthroughput)+" current ops/sec; "+Measurements.getMeasurements().getSummary());
-			}
+				System.out.println(msg);
 			}
 
 			try
@@ -137,19 +161,27 @@ class StatusThread extends Thread
  */
 class ClientThread extends Thread
 {
-	static Random random=new Random();
+	Random _random;
 
 	DB _db;
 	boolean _dotransactions;
 	Workload _workload;
-	int _opcount;
+	long _opcount;
 	double _target;
+	ArrivalGenerator _arrivals;
+	String _namespace;
 
-	int _opsdone;
+	static final AtomicLongFieldUpdater<ClientThread> OPSDONE=AtomicLongFieldUpdater.newUpdater(ClientThread.class,"_opsdone");
+
+	//written only by this thread, with ordered writes that are cheaper than volatile ones, and read by the status thread while it runs
+	volatile long _opsdone;
+	long _finishtime;
 	int _threadid;
 	int _threadcount;
 	Object _workloadstate;
 	Properties _props;
+	boolean _jfrevents;
+	double _targetrate=-1;
 
 
 	/**
@@ -163,8 +195,10 @@ class ClientThread extends Thread
 	 * @param props the properties defining the experiment
 	 * @param opcount the number of operations (transactions or inserts) to do
 	 * @param targetperthreadperms target number of operations per thread per ms
+	 * @param arrivals the arrival times of the operations, when there is a target
+	 * @param namespace the measurement namespace of this thread's tenant, or "" without tenants
 	 */
-	public ClientThread(DB db, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, int opcount, double targetperthreadperms)
+	public ClientThread(DB db, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, long opcount, double targetperthreadperms, ArrivalGenerator arrivals, String namespace)
 	{
 		//TODO: consider removing threadcount and threadid
 		_db=db;
@@ -173,19 +207,43 @@ class ClientThread extends Thread
 		_opcount=opcount;
 		_opsdone=0;
 		_target=targetperthreadperms;
+		_arrivals=arrivals;
+		_namespace=namespace;
 		_threadid=threadid;
 		_threadcount=threadcount;
 		_props=props;
+		//name the thread after its tenant and id, for reports such as the slowest operations
+		setName("client-"+namespace+threadid);
 		//System.out.println("Interval = "+interval);
 	}
 
-	public int getOpsDone()
+	public long getOpsDone()
 	{
 		return _opsdone;
 	}
 
+	/**
+	 * Record a Java Flight Recorder event if the rate of the arrivals changed, such as at the start of a burst.
+	 */
+	void checkTarget()
+	{
+		double rate=_arrivals.getRate();
+		if (rate!=_targetrate)
+		{
+			_targetrate=rate;
+			TargetEvent.emit(1000.0*rate);
+		}
+	}
+
 	public void run()
 	{
+		Measurements.setNamespace(_namespace);
+
+		//number the thread's random streams by its tenant and id, which are the same in every run
+		Utils.setThreadStream((((long)_namespace.hashCode())<<32)|_threadid);
+		_random=Utils.newRandom();
+		_jfrevents=Measurements.getMeasurements().getJfrSample()>0;
+
 		try
 		{
 			_db.init();
@@ -215,7 +273,7 @@ class ClientThread extends Thread
 		   //and the sleep() doesn't make sense for granularities < 1 ms anyway
 		   if ( (_target>0) && (_target<=1.0) ) 
 		   {
-		      sleep(random.nextInt((int)(1.0/_target)));
+		      sleep(_random.nextInt((int)(1.0/_target)));
 		   }
 		}
 		catch (InterruptedException e)
@@ -237,7 +295,7 @@ class ClientThread extends Thread
 						break;
 					}
 
-					_opsdone++;
+					OPSDONE.lazySet(this,_opsdone+1);
 
 					//throttle the operations
 					if (_target>0)
@@ -246,7 +304,12 @@ class ClientThread extends Thread
 						//like sleeping for (1/target throughput)-operation latency,
 						//because it smooths timing inaccuracies (from sleep() taking an int, 
 						//current time in millis) over many operations
-						while (System.currentTimeMillis()-st<((double)_opsdone)/_target)
+						double nextarrival=_arrivals.nextArrival();
+						if (_jfrevents)
+						{
+							checkTarget();
+						}
+						while (System.currentTimeMillis()-st<nextarrival)
 						{
 							try
 							{
@@ -273,7 +336,7 @@ class ClientThread extends Thread
 						break;
 					}
 
-					_opsdone++;
+					OPSDONE.lazySet(this,_opsdone+1);
 
 					//throttle the operations
 					if (_target>0)
@@ -282,7 +345,12 @@ class ClientThread extends Thread
 						//like sleeping for (1/target throughput)-operation latency,
 						//because it smooths timing inaccuracies (from sleep() taking an int, 
 						//current time in millis) over many operations
-						while (System.currentTimeMillis()-st<((double)_opsdone)/_target)
+						double nextarrival=_arrivals.nextArrival();
+						if (_jfrevents)
+						{
+							checkTarget();
+						}
+						while (System.currentTimeMillis()-st<nextarrival)
 						{
 							try 
 							{
@@ -304,6 +372,8 @@ class ClientThread extends Thread
 			System.exit(0);
 		}
 
+		_finishtime=System.currentTimeMillis();
+
 		try
 		{
 			_db.cleanup();
@@ -328,6 +398,12 @@ public class Client
 	public static final String RECORD_COUNT_PROPERTY="recordcount";
 
 	public static final String WORKLOAD_PROPERTY="workload";
+
+	/**
+	 * The seed of all the random choices of the run. Runs with the same seed and the same number of threads make the
+	 * same choices in each thread. Without a seed, one is chosen from the clock.
+	 */
+	public static final String SEED_PROPERTY="seed";
 	
 	/**
 	 * Indicates how many inserts to do, if less than recordcount. Useful for partitioning
@@ -336,6 +412,121 @@ public class Client
 	 */
 	public static final String INSERT_COUNT_PROPERTY="insertcount";
 
+	/**
+	 * A comma separated list of tenants, which run side by side in one client. Each tenant has its own workload, 
+	 * threads, target, table and so on, set with tenant.&lt;name&gt;.&lt;property&gt; properties or with a property file
+	 * named by tenant.&lt;name&gt;.propertyfile; other properties are shared. Measurements are reported per tenant,
+	 * as &lt;name&gt;:READ and so on.
+	 */
+	public static final String TENANTS_PROPERTY="tenants";
+
+	public static final String TENANT_PROPERTY_PREFIX="tenant.";
+
+	/**
+	 * The property, within a scope such as a tenant, that names a property file for the scope.
+	 */
+	public static final String SCOPED_PROPERTY_FILE="propertyfile";
+
+	/**
+	 * The process by which operations arrive when there is a target throughput: "uniform" (evenly spaced), "poisson",
+	 * "onoff" (Poisson bursts separated by idle periods), "mmpp" (Markov-modulated Poisson) or "diurnal" (Poisson
+	 * following a daily curve, with the target as its peak).
+	 */
+	public static final String ARRIVAL_PROCESS_PROPERTY="arrivalprocess";
+	public static final String ARRIVAL_PROCESS_PROPERTY_DEFAULT="uniform";
+
+	/**
+	 * The mean lengths of on and off periods of the onoff arrival process, in milliseconds.
+	 */
+	public static final String BURST_ON_MEAN_PROPERTY="burstonmean";
+	public static final String BURST_ON_MEAN_PROPERTY_DEFAULT="1000";
+	public static final String BURST_OFF_MEAN_PROPERTY="burstoffmean";
+	public static final String BURST_OFF_MEAN_PROPERTY_DEFAULT="4000";
+
+	/**
+	 * The relative rates and the mean sojourn times in milliseconds of the states of the mmpp arrival process, 
+	 * as comma separated lists.
+	 */
+	public static final String MMPP_RATES_PROPERTY="mmpprates";
+	public static final String MMPP_RATES_PROPERTY_DEFAULT="1,10";
+	public static final String MMPP_SOJOURNS_PROPERTY="mmppsojourns";
+	public static final String MMPP_SOJOURNS_PROPERTY_DEFAULT="10000,1000";
+
+	/**
+	 * The relative rates of equal slots of the diurnal curve, as a comma separated list, the length of the whole curve
+	 * in milliseconds, and the point of the curve at which the run starts.
+	 */
+	public static final String DIURNAL_CURVE_PROPERTY="diurnalcurve";
+	public static final String DIURNAL_CURVE_PROPERTY_DEFAULT="0.3,0.2,0.15,0.12,0.12,0.15,0.25,0.4,0.6,0.75,0.85,0.9,0.95,0.95,0.9,0.9,0.9,0.95,1,1,0.9,0.75,0.6,0.45";
+	public static final String DIURNAL_PERIOD_PROPERTY="diurnalperiod";
+	public static final String DIURNAL_PERIOD_PROPERTY_DEFAULT="86400000";
+	public static final String DIURNAL_OFFSET_PROPERTY="diurnaloffset";
+	public static final String DIURNAL_OFFSET_PROPERTY_DEFAULT="0";
+
+	/**
+	 * Create the arrival process of one client thread from the arrivalprocess property.
+	 * 
+	 * @param rate the target number of operations per thread per ms
+	 */
+	static ArrivalGenerator createArrivalGenerator(Properties props, double rate)
+	{
+		String process=props.getProperty(ARRIVAL_PROCESS_PROPERTY,ARRIVAL_PROCESS_PROPERTY_DEFAULT);
+		try
+		{
+			if (process.compareTo("uniform")==0)
+			{
+				return new UniformArrivalGenerator(rate);
+			}
+			else if (process.compareTo("poisson")==0)
+			{
+				return new PoissonArrivalGenerator(rate);
+			}
+			else if (process.compareTo("onoff")==0)
+			{
+				double meanon=Double.parseDouble(props.getProperty(BURST_ON_MEAN_PROPERTY,BURST_ON_MEAN_PROPERTY_DEFAULT));
+				double meanoff=Double.parseDouble(props.getProperty(BURST_OFF_MEAN_PROPERTY,BURST_OFF_MEAN_PROPERTY_DEFAULT));
+				return new OnOffArrivalGenerator(rate,meanon,meanoff);
+			}
+			else if (process.compareTo("mmpp")==0)
+			{
+				double[] rates=parseDoubles(props.getProperty(MMPP_RATES_PROPERTY,MMPP_RATES_PROPERTY_DEFAULT));
+				double[] sojourns=parseDoubles(props.getProperty(MMPP_SOJOURNS_PROPERTY,MMPP_SOJOURNS_PROPERTY_DEFAULT));
+				return new MarkovModulatedArrivalGenerator(rate,rates,sojourns);
+			}
+			else if (process.compareTo("diurnal")==0)
+			{
+				double[] curve=parseDoubles(props.getProperty(DIURNAL_CURVE_PROPERTY,DIURNAL_CURVE_PROPERTY_DEFAULT));
+				double period=Double.parseDouble(props.getProperty(DIURNAL_PERIOD_PROPERTY,DIURNAL_PERIOD_PROPERTY_DEFAULT));
+				double offset=Double.parseDouble(props.getProperty(DIURNAL_OFFSET_PROPERTY,DIURNAL_OFFSET_PROPERTY_DEFAULT));
+				return new DiurnalArrivalGenerator(rate,curve,period,offset);
+			}
+			else
+			{
+				System.out.println("Unknown arrival process \""+process+"\"");
+				System.exit(0);
+				return null;
+			}
+		}
+		catch (IllegalArgumentException e)
+		{
+			//also a NumberFormatException from a malformed number or list
+			System.out.println("Invalid properties for arrival process \""+process+"\": "+e.getMessage());
+			System.exit(0);
+			return null;
+		}
+	}
+
+	static double[] parseDoubles(String list)
+	{
+		String[] values=list.split(",");
+		double[] ret=new double[values.length];
+		for (int i=0; i<values.length; i++)
+		{
+			ret[i]=Double.parseDouble(values[i].trim());
+		}
+		return ret;
+	}
+
 	public static void usageMessage()
 	{
 		System.out.println("Usage: java com.yahoo.ycsb.Client [options]");
@@ -381,7 +572,7 @@ public class Client
 	 * loaded from conf.
 	 * @throws IOException Either failed to write to output stream or failed to close it.
 	 */
-	private static void exportMeasurements(Properties props, int opcount, long runtime)
+	private static void exportMeasurements(Properties props, long runtime, Vector<Thread> threads, long st)
 			throws IOException
 	{
 		MeasurementsExporter exporter = null;
@@ -411,9 +602,19 @@ public class Client
 				exporter = new TextMeasurementsExporter(out);
 			}
 
-			exporter.write("OVERALL", "RunTime(ms)", runtime);
-			double throughput = 1000.0 * ((double) opcount) / ((double) runtime);
+			//count the operations done rather than those asked for, since a workload may run out of operations early
+			long opsdone=0;
+			for (Thread t : threads)
+			{
+				opsdone+=((ClientThread)t).getOpsDone();
+			}
+
+			exporter.write("OVERALL", "RunTime(ms)", (double)runtime);
+			double throughput = 1000.0 * ((double) opsdone) / ((double) runtime);
 			exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
+			double mbthroughput = 1000.0 * (Measurements.getMeasurements().getTotalBytes() / Measurements.BYTES_PER_MB) / ((double) runtime);
+			exporter.write("OVERALL", "Throughput(MB/sec)", mbthroughput);
+			exportTenantMeasurements(exporter, threads, st);
 
 			Measurements.getMeasurements().exportMeasurements(exporter);
 		} finally
@@ -424,16 +625,175 @@ public class Client
 			}
 		}
 	}
+
+	/**
+	 * Exports the run time and throughput of each tenant, as &lt;tenant&gt;:OVERALL. A tenant's run time ends when 
+	 * its last thread finishes. Nothing is exported without tenants.
+	 */
+	private static void exportTenantMeasurements(MeasurementsExporter exporter, Vector<Thread> threads, long st)
+			throws IOException
+	{
+		LinkedHashMap<String,long[]> tenants=new LinkedHashMap<String,long[]>();
+		for (Thread t : threads)
+		{
+			ClientThread ct=(ClientThread)t;
+			if (ct._namespace.length()==0)
+			{
+				continue;
+			}
+			long[] stats=tenants.get(ct._namespace);
+			if (stats==null)
+			{
+				stats=new long[2];
+				tenants.put(ct._namespace,stats);
+			}
+			stats[0]+=ct.getOpsDone();
+			stats[1]=Math.max(stats[1],ct._finishtime);
+		}
+
+		for (Map.Entry<String,long[]> tenant : tenants.entrySet())
+		{
+			String ns=tenant.getKey();
+			long runtime=tenant.getValue()[1]-st;
+			exporter.write(ns+"OVERALL", "RunTime(ms)", (double)runtime);
+			double throughput = 1000.0 * ((double) tenant.getValue()[0]) / ((double) runtime);
+			exporter.write(ns+"OVERALL", "Throughput(ops/sec)", throughput);
+			double mbthroughput = 1000.0 * (Measurements.getMeasurements().getTotalBytes(ns) / Measurements.BYTES_PER_MB) / ((double) runtime);
+			exporter.write(ns+"OVERALL", "Throughput(MB/sec)", mbthroughput);
+		}
+	}
 	
+	/**
+	 * Return a scoped copy of the properties, such as the properties of one tenant: the properties, overridden by
+	 * the property file named by &lt;prefix&gt;propertyfile, if it is set, and then by the properties named 
+	 * &lt;prefix&gt;&lt;property&gt;.
+	 */
+	public static Properties scopedProperties(Properties props, String prefix) throws IOException
+	{
+		Properties ret=new Properties();
+		for (String prop : props.stringPropertyNames())
+		{
+			ret.setProperty(prop,props.getProperty(prop));
+		}
+
+		String propfile=props.getProperty(prefix+SCOPED_PROPERTY_FILE);
+		if (propfile!=null)
+		{
+			ret.load(new FileInputStream(propfile));
+		}
+
+		for (String prop : props.stringPropertyNames())
+		{
+			if (prop.startsWith(prefix))
+			{
+				ret.setProperty(prop.substring(prefix.length()),props.getProperty(prop));
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Load and initialize the workload of one tenant, and create its client threads, measuring in the tenant's namespace.
+	 */
+	static void createThreads(Properties props, boolean dotransactions, String namespace, Vector<Thread> threads, Vector<Workload> workloads)
+	{
+		//get number of threads, target and db
+		int threadcount=Integer.parseInt(props.getProperty("threadcount","1"));
+		String dbname=props.getProperty("db","com.yahoo.ycsb.BasicDB");
+		int target=Integer.parseInt(props.getProperty("target","0"));
+		
+		//compute the target throughput
+		double targetperthreadperms=-1;
+		if (target>0)
+		{
+			double targetperthread=((double)target)/((double)threadcount);
+			targetperthreadperms=targetperthread/1000.0;
+		}	 
+
+		//the DB wrappers create their byte counters in the namespace of the calling thread
+		Measurements.setNamespace(namespace);
+
+		//load the workload
+		ClassLoader classLoader = Client.class.getClassLoader();
+
+		Workload workload=null;
+
+		try 
+		{
+			Class workloadclass = classLoader.loadClass(props.getProperty(WORKLOAD_PROPERTY));
+
+			workload=(Workload)workloadclass.newInstance();
+		}
+		catch (Exception e) 
+		{  
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
+
+		try
+		{
+			workload.init(props);
+		}
+		catch (WorkloadException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
+		workloads.add(workload);
+
+		long opcount;
+		if (dotransactions)
+		{
+			opcount=Long.parseLong(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
+		}
+		else
+		{
+			if (props.containsKey(INSERT_COUNT_PROPERTY))
+			{
+				opcount=Long.parseLong(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
+			}
+			else
+			{
+				opcount=Long.parseLong(props.getProperty(RECORD_COUNT_PROPERTY,"0"));
+			}
+		}
+
+		for (int threadid=0; threadid<threadcount; threadid++)
+		{
+			DB db=null;
+			try
+			{
+				db=DBFactory.newDB(dbname,props);
+			}
+			catch (UnknownDBException e)
+			{
+				System.out.println("Unknown DB "+dbname);
+				System.exit(0);
+			}
+
+			ArrivalGenerator arrivals=null;
+			if (targetperthreadperms>0)
+			{
+				arrivals=createArrivalGenerator(props,targetperthreadperms);
+			}
+
+			Thread t=new ClientThread(db,dotransactions,workload,threadid,threadcount,props,opcount/threadcount,targetperthreadperms,arrivals,namespace);
+
+			threads.add(t);
+			//t.start();
+		}
+
+		Measurements.setNamespace("");
+	}
+
 	@SuppressWarnings("unchecked")
 	public static void main(String[] args)
 	{
-		String dbname;
 		Properties props=new Properties();
 		Properties fileprops=new Properties();
 		boolean dotransactions=true;
-		int threadcount=1;
-		int target=0;
 		boolean status=false;
 		String label="";
 
@@ -595,23 +955,40 @@ public class Client
 
 		props=fileprops;
 
-		if (!checkRequiredProperties(props))
+		//the properties of each tenant; without tenants, the client runs one workload
+		Vector<String> namespaces=new Vector<String>();
+		Vector<Properties> tenantprops=new Vector<Properties>();
+		String tenants=props.getProperty(TENANTS_PROPERTY);
+		if (tenants==null)
 		{
-			System.exit(0);
+			namespaces.add("");
+			tenantprops.add(props);
+		}
+		else
+		{
+			for (String tenant : tenants.split(","))
+			{
+				tenant=tenant.trim();
+				namespaces.add(tenant+":");
+				try
+				{
+					tenantprops.add(scopedProperties(props,TENANT_PROPERTY_PREFIX+tenant+"."));
+				}
+				catch (IOException e)
+				{
+					System.out.println(e.getMessage());
+					System.exit(0);
+				}
+			}
 		}
 
-		//get number of threads, target and db
-		threadcount=Integer.parseInt(props.getProperty("threadcount","1"));
-		dbname=props.getProperty("db","com.yahoo.ycsb.BasicDB");
-		target=Integer.parseInt(props.getProperty("target","0"));
-		
-		//compute the target throughput
-		double targetperthreadperms=-1;
-		if (target>0)
+		for (Properties p : tenantprops)
 		{
-			double targetperthread=((double)target)/((double)threadcount);
-			targetperthreadperms=targetperthread/1000.0;
-		}	 
+			if (!checkRequiredProperties(p))
+			{
+				System.exit(0);
+			}
+		}
 
 		System.out.println("YCSB Client 0.1");
 		System.out.print("Command line:");
@@ -620,6 +997,12 @@ public class Client
 			System.out.print(" "+args[i]);
 		}
 		System.out.println();
+
+		if (props.getProperty(SEED_PROPERTY)!=null)
+		{
+			Utils.setSeed(Long.parseLong(props.getProperty(SEED_PROPERTY)));
+		}
+		System.out.println("Seed: "+Utils.getSeed());
 		System.err.println("Loading workload...");
 		
 		//show a warning message that creating the workload is taking a while
@@ -646,33 +1029,15 @@ public class Client
 		//set up measurements
 		Measurements.setProperties(props);
 		
-		//load the workload
-		ClassLoader classLoader = Client.class.getClassLoader();
-
-		Workload workload=null;
-
-		try 
-		{
-			Class workloadclass = classLoader.loadClass(props.getProperty(WORKLOAD_PROPERTY));
-
-			workload=(Workload)workloadclass.newInstance();
-		}
-		catch (Exception e) 
-		{  
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			System.exit(0);
-		}
-
-		try
-		{
-			workload.init(props);
-		}
-		catch (WorkloadException e)
+		//record the client's own pauses, to tell them apart from the database's
+		PauseMonitor pausemonitor=PauseMonitor.start(props);
+		
+		//load the workloads and create the threads of each tenant
+		Vector<Thread> threads=new Vector<Thread>();
+		Vector<Workload> workloads=new Vector<Workload>();
+		for (int i=0; i<tenantprops.size(); i++)
 		{
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			System.exit(0);
+			createThreads(tenantprops.get(i),dotransactions,namespaces.get(i),threads,workloads);
 		}
 		
 		warningthread.interrupt();
@@ -681,44 +1046,6 @@ public class Client
 
 		System.err.println("Starting test.");
 
-		int opcount;
-		if (dotransactions)
-		{
-			opcount=Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
-		}
-		else
-		{
-			if (props.containsKey(INSERT_COUNT_PROPERTY))
-			{
-				opcount=Integer.parseInt(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
-			}
-			else
-			{
-				opcount=Integer.parseInt(props.getProperty(RECORD_COUNT_PROPERTY,"0"));
-			}
-		}
-
-		Vector<Thread> threads=new Vector<Thread>();
-
-		for (int threadid=0; threadid<threadcount; threadid++)
-		{
-			DB db=null;
-			try
-			{
-				db=DBFactory.newDB(dbname,props);
-			}
-			catch (UnknownDBException e)
-			{
-				System.out.println("Unknown DB "+dbname);
-				System.exit(0);
-			}
-
-			Thread t=new ClientThread(db,dotransactions,workload,threadid,threadcount,props,opcount/threadcount,targetperthreadperms);
-
-			threads.add(t);
-			//t.start();
-		}
-
 		StatusThread statusthread=null;
 
 		if (status)
@@ -757,9 +1084,17 @@ public class Client
 			statusthread.interrupt();
 		}
 
+		if (pausemonitor!=null)
+		{
+			pausemonitor.stop();
+		}
+
 		try
 		{
-			workload.cleanup();
+			for (Workload workload : workloads)
+			{
+				workload.cleanup();
+			}
 		}
 		catch (WorkloadException e)
 		{
@@ -770,7 +1105,7 @@ public class Client
 
 		try
 		{
-			exportMeasurements(props, opcount, en - st);
+			exportMeasurements(props, en - st, threads, st);
 		} catch (IOException e)
 		{
 			System.err.println("Could not export measurements, error: " + e.getMessage());
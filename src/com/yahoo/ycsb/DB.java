@@ -134,4 +134,35 @@ public abstract class DB
 	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
 	 */
 	public abstract int delete(String table, String key);
+
+	/**
+	 * Start a transaction. The operations issued on this DB instance until the matching commitTransaction() or abortTransaction()
+	 * belong to the transaction. DB layers without transactions can leave this alone, and the operations then run individually.
+	 *
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int beginTransaction()
+	{
+		return 0;
+	}
+
+	/**
+	 * Commit the transaction started by beginTransaction().
+	 *
+	 * @return Zero on success, a non-zero error code on error or if the transaction could not be committed.
+	 */
+	public int commitTransaction()
+	{
+		return 0;
+	}
+
+	/**
+	 * Roll back the transaction started by beginTransaction().
+	 *
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int abortTransaction()
+	{
+		return 0;
+	}
 }
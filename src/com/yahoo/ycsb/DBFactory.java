@@ -24,8 +24,16 @@ import java.util.Properties;
  */
 public class DBFactory
 {
-      @SuppressWarnings("unchecked")
 	public static DB newDB(String dbname, Properties properties) throws UnknownDBException
+      {
+	 return newDB(dbname,properties,"");
+      }
+
+      /**
+       * Create a DB layer whose operations are measured under names that start with prefix.
+       */
+      @SuppressWarnings("unchecked")
+	public static DB newDB(String dbname, Properties properties, String prefix) throws UnknownDBException
       {
 	 ClassLoader classLoader = DBFactory.class.getClassLoader();
 
@@ -46,7 +54,16 @@ public class DBFactory
 	 
 	 ret.setProperties(properties);
 
-	 return new DBWrapper(ret);
+	 DB wrapper=new DBWrapper(ret,prefix);
+
+	 //record outside the measurements, so that recording does not add to the latencies; inner DB layers are not recorded
+	 String recordfile=properties.getProperty(RecordingDB.RECORD_FILE_PROPERTY);
+	 if ( (recordfile!=null) && (prefix.length()==0) )
+	 {
+	    wrapper=new RecordingDB(wrapper,recordfile);
+	 }
+
+	 return wrapper;
       }
       
 }
@@ -18,24 +18,97 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
 
+import com.yahoo.ycsb.measurements.ByteCounter;
+import com.yahoo.ycsb.measurements.ClientCost;
+import com.yahoo.ycsb.measurements.EventLog;
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OperationEvent;
+import com.yahoo.ycsb.measurements.SlowOperations;
+import com.yahoo.ycsb.measurements.ThreadSummary;
 
 /**
- * Wrapper around a "real" DB that measures latencies and counts return codes.
+ * Wrapper around a "real" DB that measures latencies, counts return codes, and counts 
+ * the key and value bytes sent and received for each operation type. Bytes are counted 
+ * as characters, which matches the ASCII keys and values the workloads generate. With the
+ * keyrankbands property, latencies are also measured by the popularity band of the key, and with
+ * the slowestoperations property, the slowest operations are kept with their keys and start times, and with
+ * the eventlog property, every operation is logged. With the clientcost property, the CPU time and bytes allocated
+ * by the client thread are measured for a sample of the operations, and with the jfrevents property, a sample of the
+ * operations are recorded as Java Flight Recorder events. The operations of each client thread are also summarized, to show
+ * how much the threads differ.
  */
 public class DBWrapper extends DB
 {
 	DB _db;
 	Measurements _measurements;
+	ByteCounter _readbytes;
+	ByteCounter _scanbytes;
+	ByteCounter _updatebytes;
+	ByteCounter _insertbytes;
+	ByteCounter _deletebytes;
+	String _readname;
+	String _scanname;
+	String _updatename;
+	String _insertname;
+	String _deletename;
+	boolean _keybands;
+	SlowOperations _slowest;
+	EventLog _events;
+	ClientCost _cost;
+	int _jfrsample;
+	int _jfrcountdown;
+	boolean _outer;
+	ThreadSummary _summary;
 
 	public DBWrapper(DB db)
+	{
+		this(db,"");
+	}
+
+	/**
+	 * Wrap a DB, reporting its operations under names that start with prefix, such as "CACHE-READ" for prefix "CACHE-".
+	 * This keeps apart the measurements of DB layers that are composed of other DB layers. Bytes are only reported
+	 * without a prefix.
+	 */
+	public DBWrapper(DB db, String prefix)
 	{
 		_db=db;
 		_measurements=Measurements.getMeasurements();
+		_readname=prefix+"READ";
+		_scanname=prefix+"SCAN";
+		_updatename=prefix+"UPDATE";
+		_insertname=prefix+"INSERT";
+		_deletename=prefix+"DELETE";
+		_keybands=_measurements.hasKeyBands();
+		_slowest=_measurements.newSlowOperations();
+		//inner DB layers are part of the outer operation, so only the outer layer logs events
+		_events=prefix.length()==0 ? _measurements.newEventLog() : null;
+		_cost=prefix.length()==0 ? _measurements.newClientCost(db.getClass().getSimpleName()) : null;
+		_jfrsample=_measurements.getJfrSample();
+		_jfrcountdown=1;
+		_outer=prefix.length()==0;
+		if (prefix.length()==0)
+		{
+			_readbytes=_measurements.newByteCounter(_readname);
+			_scanbytes=_measurements.newByteCounter(_scanname);
+			_updatebytes=_measurements.newByteCounter(_updatename);
+			_insertbytes=_measurements.newByteCounter(_insertname);
+			_deletebytes=_measurements.newByteCounter(_deletename);
+		}
+		else
+		{
+			//the bytes of an inner DB layer are part of the bytes of the outer operation, so they are not reported again
+			_readbytes=new ByteCounter();
+			_scanbytes=new ByteCounter();
+			_updatebytes=new ByteCounter();
+			_insertbytes=new ByteCounter();
+			_deletebytes=new ByteCounter();
+		}
 	}
 
 	/**
@@ -61,6 +134,15 @@ public class DBWrapper extends DB
 	public void init() throws DBException
 	{
 		_db.init();
+		if (_cost!=null)
+		{
+			_cost.begin();
+		}
+		//created here, in the thread that uses this DB, which is the one the summary is named after
+		if (_outer)
+		{
+			_summary=_measurements.newThreadSummary();
+		}
 	}
 
 	/**
@@ -69,9 +151,68 @@ public class DBWrapper extends DB
 	 */
 	public void cleanup() throws DBException
 	{
+		if (_cost!=null)
+		{
+			_cost.end();
+		}
+		if (_events!=null)
+		{
+			_events.close();
+		}
 		_db.cleanup();
 	}
 
+	/**
+	 * Start the Java Flight Recorder event of an operation, if this operation is sampled and events are being recorded.
+	 */
+	OperationEvent startEvent()
+	{
+		if ( (_jfrsample<=0) || (--_jfrcountdown>0) )
+		{
+			return null;
+		}
+		_jfrcountdown=_jfrsample;
+		return OperationEvent.start();
+	}
+
+	/**
+	 * Measure and record a completed operation: everything but its bytes, which depend on the operation type.
+	 *
+	 * @param name The name the operation is measured under, such as "READ"
+	 * @param operation The EventLog code of the operation
+	 * @param key The key of the operation, or the start key of a scan
+	 */
+	void finish(String name, int operation, String table, String key, long st, long en, long stnanos, long ennanos, int res, OperationEvent event, boolean sampled)
+	{
+		int latency=(int)(en-st);
+		if (event!=null)
+		{
+			event.commit(name,table,key,res);
+		}
+		if (sampled)
+		{
+			_cost.endOperation(operation);
+		}
+		_measurements.measure(name,latency);
+		if (_summary!=null)
+		{
+			_summary.add(st,en);
+		}
+		if (_keybands)
+		{
+			_measurements.measureKeyBand(name,latency);
+		}
+		_measurements.reportReturnCode(name,res);
+		if (_events!=null)
+		{
+			_events.append(operation,stnanos,ennanos-stnanos,res);
+		}
+		if (_slowest!=null)
+		{
+			_slowest.offer(name,key,st,latency,res);
+		}
+	}
+
 	/**
 	 * Read a record from the database. Each field/value pair from the result will be stored in a HashMap.
 	 *
@@ -83,11 +224,16 @@ public class DBWrapper extends DB
 	 */
 	public int read(String table, String key, Set<String> fields, HashMap<String,String> result)
 	{
+		//the cost of sampling is outside the measured latency
+		boolean sampled=(_cost!=null) && _cost.startOperation();
+		OperationEvent event=startEvent();
 		long st=System.currentTimeMillis();
+		long stnanos=_events==null ? 0 : System.nanoTime();
 		int res=_db.read(table,key,fields,result);
 		long en=System.currentTimeMillis();
-		_measurements.measure("READ",(int)(en-st));
-		_measurements.reportReturnCode("READ",res);
+		long ennanos=_events==null ? 0 : System.nanoTime();
+		finish(_readname,EventLog.READ,table,key,st,en,stnanos,ennanos,res,event,sampled);
+		_readbytes.add(key.length()+size(fields),size(result));
 		return res;
 	}
 
@@ -103,11 +249,21 @@ public class DBWrapper extends DB
 	 */
 	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,String>> result)
 	{
+		//the cost of sampling is outside the measured latency
+		boolean sampled=(_cost!=null) && _cost.startOperation();
+		OperationEvent event=startEvent();
 		long st=System.currentTimeMillis();
+		long stnanos=_events==null ? 0 : System.nanoTime();
 		int res=_db.scan(table,startkey,recordcount,fields,result);
 		long en=System.currentTimeMillis();
-		_measurements.measure("SCAN",(int)(en-st));
-		_measurements.reportReturnCode("SCAN",res);
+		long ennanos=_events==null ? 0 : System.nanoTime();
+		finish(_scanname,EventLog.SCAN,table,startkey,st,en,stnanos,ennanos,res,event,sampled);
+		long received=0;
+		for (HashMap<String,String> record : result)
+		{
+			received+=size(record);
+		}
+		_scanbytes.add(startkey.length()+size(fields),received);
 		return res;
 	}
 	
@@ -122,11 +278,16 @@ public class DBWrapper extends DB
 	 */
 	public int update(String table, String key, HashMap<String,String> values)
 	{
+		//the cost of sampling is outside the measured latency
+		boolean sampled=(_cost!=null) && _cost.startOperation();
+		OperationEvent event=startEvent();
 		long st=System.currentTimeMillis();
+		long stnanos=_events==null ? 0 : System.nanoTime();
 		int res=_db.update(table,key,values);
 		long en=System.currentTimeMillis();
-		_measurements.measure("UPDATE",(int)(en-st));
-		_measurements.reportReturnCode("UPDATE",res);
+		long ennanos=_events==null ? 0 : System.nanoTime();
+		finish(_updatename,EventLog.UPDATE,table,key,st,en,stnanos,ennanos,res,event,sampled);
+		_updatebytes.add(key.length()+size(values),0);
 		return res;
 	}
 
@@ -141,11 +302,16 @@ public class DBWrapper extends DB
 	 */
 	public int insert(String table, String key, HashMap<String,String> values)
 	{
+		//the cost of sampling is outside the measured latency
+		boolean sampled=(_cost!=null) && _cost.startOperation();
+		OperationEvent event=startEvent();
 		long st=System.currentTimeMillis();
+		long stnanos=_events==null ? 0 : System.nanoTime();
 		int res=_db.insert(table,key,values);
 		long en=System.currentTimeMillis();
-		_measurements.measure("INSERT",(int)(en-st));
-		_measurements.reportReturnCode("INSERT",res);
+		long ennanos=_events==null ? 0 : System.nanoTime();
+		finish(_insertname,EventLog.INSERT,table,key,st,en,stnanos,ennanos,res,event,sampled);
+		_insertbytes.add(key.length()+size(values),0);
 		return res;
 	}
 
@@ -158,11 +324,73 @@ public class DBWrapper extends DB
 	 */
 	public int delete(String table, String key)
 	{
+		//the cost of sampling is outside the measured latency
+		boolean sampled=(_cost!=null) && _cost.startOperation();
+		OperationEvent event=startEvent();
 		long st=System.currentTimeMillis();
+		long stnanos=_events==null ? 0 : System.nanoTime();
 		int res=_db.delete(table,key);
 		long en=System.currentTimeMillis();
-		_measurements.measure("DELETE",(int)(en-st));
-		_measurements.reportReturnCode("DELETE",res);
+		long ennanos=_events==null ? 0 : System.nanoTime();
+		finish(_deletename,EventLog.DELETE,table,key,st,en,stnanos,ennanos,res,event,sampled);
+		_deletebytes.add(key.length(),0);
 		return res;
 	}
+
+	/**
+	 * Start a transaction, passing it through to the DB.
+	 */
+	public int beginTransaction()
+	{
+		return _db.beginTransaction();
+	}
+
+	/**
+	 * Commit a transaction, passing it through to the DB.
+	 */
+	public int commitTransaction()
+	{
+		return _db.commitTransaction();
+	}
+
+	/**
+	 * Roll back a transaction, passing it through to the DB.
+	 */
+	public int abortTransaction()
+	{
+		return _db.abortTransaction();
+	}
+
+	/**
+	 * Return the number of bytes in a set of field names.
+	 */
+	static long size(Set<String> fields)
+	{
+		long ret=0;
+		if (fields!=null)
+		{
+			for (String field : fields)
+			{
+				ret+=field.length();
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Return the number of bytes in a set of field/value pairs.
+	 */
+	static long size(HashMap<String,String> values)
+	{
+		long ret=0;
+		if (values!=null)
+		{
+			for (Map.Entry<String,String> entry : values.entrySet())
+			{
+				String value=entry.getValue();
+				ret+=entry.getKey().length()+(value==null ? 0 : value.length());
+			}
+		}
+		return ret;
+	}
 }
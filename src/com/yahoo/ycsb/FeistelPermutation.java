@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+/**
+ * A keyed permutation of the range [0, range), built as a balanced Feistel network with cycle walking. 
+ * Every value in the range maps to exactly one other value in the range, so no two key numbers collide, 
+ * and the mapping depends only on the range and the key. Each client can therefore compute it 
+ * independently, for any slice of the range it is responsible for, without coordinating with other clients.
+ * 
+ * Values outside the range are permuted within their own block of the same size, so the mapping is a 
+ * bijection on all non-negative longs and keys inserted beyond the initial range keep their block.
+ */
+public class FeistelPermutation
+{
+	/**
+	 * Number of Feistel rounds. Four rounds of a good round function give a strong pseudorandom permutation.
+	 */
+	public static final int ROUNDS=4;
+
+	/**
+	 * The largest supported range, so the network width never exceeds 62 bits.
+	 */
+	public static final long MAX_RANGE=1L<<62;
+
+	long _range;
+	int _halfbits;
+	long _halfmask;
+	long[] _roundkeys;
+
+	/**
+	 * Create a permutation of [0, range) selected by key.
+	 * 
+	 * @param range The size of the range to permute, between 1 and MAX_RANGE.
+	 * @param key The permutation key. Clients that must agree on the mapping must use the same key.
+	 */
+	public FeistelPermutation(long range, long key)
+	{
+		if ( (range<1) || (range>MAX_RANGE) )
+		{
+			throw new IllegalArgumentException("Permutation range must be between 1 and "+MAX_RANGE+", was "+range);
+		}
+		_range=range;
+
+		//smallest even number of bits that covers the range, so the network domain is less than 4 times the range
+		int bits=64-Long.numberOfLeadingZeros(range-1);
+		if (bits<2)
+		{
+			bits=2;
+		}
+		if (bits%2==1)
+		{
+			bits++;
+		}
+		_halfbits=bits/2;
+		_halfmask=(1L<<_halfbits)-1;
+
+		_roundkeys=new long[ROUNDS];
+		for (int i=0; i<ROUNDS; i++)
+		{
+			_roundkeys[i]=Utils.hash(key+i);
+		}
+	}
+
+	/**
+	 * Return the size of the permuted range.
+	 */
+	public long getRange()
+	{
+		return _range;
+	}
+
+	/**
+	 * Map a non-negative value to its image under the permutation.
+	 */
+	public long permute(long val)
+	{
+		if (val>=_range)
+		{
+			long block=val/_range;
+			return block*_range+permute(val-block*_range);
+		}
+
+		//cycle walk: the network permutes a domain of up to 4*range values, so re-encrypt until the result 
+		//falls back into the range. This takes fewer than 4 rounds on average, and always terminates because 
+		//val itself is in the range and on the same cycle.
+		long x=val;
+		do
+		{
+			x=encrypt(x);
+		}
+		while (x>=_range);
+		return x;
+	}
+
+	long encrypt(long x)
+	{
+		long left=x>>>_halfbits;
+		long right=x&_halfmask;
+		for (int i=0; i<ROUNDS; i++)
+		{
+			//round function: one multiply-xorshift of the keyed half, cheap but well mixed in its high bits
+			long f=(right^_roundkeys[i])*0x9e3779b97f4a7c15L;
+			f^=f>>>32;
+			long next=left^(f&_halfmask);
+			left=right;
+			right=next;
+		}
+		return (left<<_halfbits)|right;
+	}
+}
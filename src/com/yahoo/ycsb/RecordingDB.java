@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.yahoo.ycsb.trace.TraceFormat;
+import com.yahoo.ycsb.trace.TraceWriter;
+
+/**
+ * Wrapper around a DB that records each operation issued to it in a binary trace, which TraceWorkload can replay to
+ * issue exactly the same operations again. Each DB instance, and so each client thread, records to its own file,
+ * &lt;recordfile&gt;.&lt;n&gt;, through its own buffer, so recording takes no locks. Timestamps are in microseconds 
+ * since the first DB layer was created, the same for all threads. Tables and values are not recorded, only the sizes 
+ * of the values.
+ */
+public class RecordingDB extends DB
+{
+	/**
+	 * The name of the property for the prefix of the files to record to. Operations are only recorded if it is set.
+	 */
+	public static final String RECORD_FILE_PROPERTY="recordfile";
+	
+	static final long ORIGIN=System.nanoTime();
+	
+	static AtomicInteger _nextfile=new AtomicInteger(0);
+	
+	DB _db;
+	String _filename;
+	TraceWriter _writer;
+	
+	public RecordingDB(DB db, String recordfile)
+	{
+		_db=db;
+		_filename=recordfile+"."+_nextfile.getAndIncrement();
+	}
+	
+	public void setProperties(Properties p)
+	{
+		_db.setProperties(p);
+	}
+	
+	public Properties getProperties()
+	{
+		return _db.getProperties();
+	}
+	
+	/**
+	 * Create the record file and initialize the DB.
+	 */
+	public void init() throws DBException
+	{
+		try
+		{
+			_writer=new TraceWriter(_filename);
+		}
+		catch (IOException e)
+		{
+			throw new DBException("Could not create record file "+_filename+": "+e.getMessage());
+		}
+		_db.init();
+	}
+	
+	/**
+	 * Write out the rest of the record file and clean up the DB.
+	 */
+	public void cleanup() throws DBException
+	{
+		if (_writer!=null)
+		{
+			try
+			{
+				_writer.close();
+			}
+			catch (IOException e)
+			{
+				System.err.println("Could not write record file "+_filename+": "+e.getMessage());
+			}
+			_writer=null;
+		}
+		_db.cleanup();
+	}
+	
+	void record(int operation, String key, int scanlength, Set<String> fields, HashMap<String,String> values)
+	{
+		if (_writer==null)
+		{
+			return;
+		}
+		try
+		{
+			_writer.write(operation,(System.nanoTime()-ORIGIN)/1000,key,scanlength,fields,values);
+		}
+		catch (IOException e)
+		{
+			//stop recording rather than fail the run, so that the error is not repeated for every operation
+			System.err.println("Could not write record file "+_filename+", no longer recording: "+e.getMessage());
+			_writer=null;
+		}
+	}
+	
+	public int read(String table, String key, Set<String> fields, HashMap<String,String> result)
+	{
+		record(TraceFormat.READ,key,0,fields,null);
+		return _db.read(table,key,fields,result);
+	}
+	
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,String>> result)
+	{
+		record(TraceFormat.SCAN,startkey,recordcount,fields,null);
+		return _db.scan(table,startkey,recordcount,fields,result);
+	}
+	
+	public int update(String table, String key, HashMap<String,String> values)
+	{
+		record(TraceFormat.UPDATE,key,0,null,values);
+		return _db.update(table,key,values);
+	}
+	
+	public int insert(String table, String key, HashMap<String,String> values)
+	{
+		record(TraceFormat.INSERT,key,0,null,values);
+		return _db.insert(table,key,values);
+	}
+	
+	public int delete(String table, String key)
+	{
+		record(TraceFormat.DELETE,key,0,null,null);
+		return _db.delete(table,key);
+	}
+	
+	public int beginTransaction()
+	{
+		return _db.beginTransaction();
+	}
+	
+	public int commitTransaction()
+	{
+		return _db.commitTransaction();
+	}
+	
+	public int abortTransaction()
+	{
+		return _db.abortTransaction();
+	}
+}
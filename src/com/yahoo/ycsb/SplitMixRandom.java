@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Random;
+
+/**
+ * A Random using the SplitMix64 algorithm: a counter advanced by a fixed odd constant, passed through a mixing 
+ * function. It is fast, passes the usual statistical tests, and seeds that differ in any way give unrelated 
+ * sequences, so independent streams can be derived from one seed by mixing in a stream number. Unlike 
+ * java.util.Random it is not thread safe, and must only be used by one thread.
+ */
+public class SplitMixRandom extends Random
+{
+	private static final long serialVersionUID=1L;
+	
+	public static final long GOLDEN_GAMMA=0x9e3779b97f4a7c15L;
+	
+	long _state;
+	
+	public SplitMixRandom(long seed)
+	{
+		super(seed);
+		_state=seed;
+	}
+	
+	/**
+	 * The SplitMix64 mixing function, a bijection on longs whose output bits each depend on all input bits.
+	 */
+	public static long mix(long z)
+	{
+		z=(z^(z>>>30))*0xbf58476d1ce4e5b9L;
+		z=(z^(z>>>27))*0x94d049bb133111ebL;
+		return z^(z>>>31);
+	}
+	
+	public void setSeed(long seed)
+	{
+		_state=seed;
+	}
+	
+	protected int next(int bits)
+	{
+		return (int)(nextLong()>>>(64-bits));
+	}
+	
+	public long nextLong()
+	{
+		_state+=GOLDEN_GAMMA;
+		return mix(_state);
+	}
+	
+	public int nextInt()
+	{
+		return (int)(nextLong()>>>32);
+	}
+	
+	public double nextDouble()
+	{
+		return (nextLong()>>>11)*0x1.0p-53;
+	}
+}
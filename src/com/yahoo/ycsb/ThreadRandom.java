@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Random;
+
+/**
+ * A Random that can be shared by the client threads, such as the Random of a generator that all threads draw 
+ * from. Each thread draws from its own SplitMixRandom, seeded from the run's seed, the stream number of this Random
+ * and the stream number of the thread (see Utils), so threads do not contend, and a thread draws the same sequence 
+ * in every run with the same seed, whatever the other threads do.
+ */
+public class ThreadRandom extends Random
+{
+	private static final long serialVersionUID=1L;
+	
+	final long _stream;
+	
+	final ThreadLocal<SplitMixRandom> _random=new ThreadLocal<SplitMixRandom>()
+	{
+		protected SplitMixRandom initialValue()
+		{
+			return new SplitMixRandom(Utils.threadSeed(_stream));
+		}
+	};
+	
+	public ThreadRandom(long stream)
+	{
+		_stream=stream;
+	}
+	
+	/**
+	 * Return the calling thread's own Random.
+	 */
+	public Random get()
+	{
+		return _random.get();
+	}
+	
+	protected int next(int bits)
+	{
+		return (int)(_random.get().nextLong()>>>(64-bits));
+	}
+	
+	public int nextInt()
+	{
+		return _random.get().nextInt();
+	}
+	
+	public int nextInt(int n)
+	{
+		return _random.get().nextInt(n);
+	}
+	
+	public long nextLong()
+	{
+		return _random.get().nextLong();
+	}
+	
+	public double nextDouble()
+	{
+		return _random.get().nextDouble();
+	}
+	
+	public float nextFloat()
+	{
+		return _random.get().nextFloat();
+	}
+	
+	public boolean nextBoolean()
+	{
+		return _random.get().nextBoolean();
+	}
+	
+	public double nextGaussian()
+	{
+		return _random.get().nextGaussian();
+	}
+	
+	public void nextBytes(byte[] bytes)
+	{
+		_random.get().nextBytes(bytes);
+	}
+}
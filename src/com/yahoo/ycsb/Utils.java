@@ -18,13 +18,101 @@
 package com.yahoo.ycsb;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Utility functions.
  */
 public class Utils
 {
-	static Random random=new Random();
+	/**
+	 * The seed all random streams are derived from. Without a seed property, a seed is chosen from the clock.
+	 */
+	static long seed=SplitMixRandom.mix(System.nanoTime()^System.currentTimeMillis());
+	
+	/**
+	 * Stream numbers for threads that are not given one with setThreadStream().
+	 */
+	static AtomicLong nextthreadstream=new AtomicLong(1L<<32);
+	
+	/**
+	 * The stream number of each thread, and the number of streams it has created.
+	 */
+	static ThreadLocal<long[]> threadstream=new ThreadLocal<long[]>()
+	{
+		protected long[] initialValue()
+		{
+			return new long[] {nextthreadstream.getAndIncrement(),0};
+		}
+	};
+	
+	static Random random=new ThreadRandom(0);
+	
+	/**
+	 * Set the seed of all random streams. Must be called before any stream is created or used.
+	 */
+	public static void setSeed(long s)
+	{
+		seed=s;
+	}
+	
+	public static long getSeed()
+	{
+		return seed;
+	}
+	
+	/**
+	 * Set the stream number of the calling thread. Client threads are numbered so that each gets the same streams 
+	 * in every run, whatever the order in which threads run.
+	 */
+	public static void setThreadStream(long stream)
+	{
+		long[] s=threadstream.get();
+		s[0]=stream;
+		s[1]=0;
+	}
+	
+	/**
+	 * Return a new stream number: the nth stream created by the calling thread.
+	 */
+	static long nextStream()
+	{
+		long[] s=threadstream.get();
+		s[1]++;
+		return SplitMixRandom.mix(s[0]*SplitMixRandom.GOLDEN_GAMMA+s[1]);
+	}
+	
+	/**
+	 * Return the seed of the calling thread's part of a shared stream.
+	 */
+	static long threadSeed(long stream)
+	{
+		return SplitMixRandom.mix(seed^SplitMixRandom.mix(stream+SplitMixRandom.mix(threadstream.get()[0])));
+	}
+	
+	/**
+	 * Return a Random for use by the calling thread only, with a stream of its own.
+	 */
+	public static Random newRandom()
+	{
+		return new SplitMixRandom(SplitMixRandom.mix(seed^nextStream()));
+	}
+	
+	/**
+	 * Return a Random that may be shared by threads, each of which draws from its own part of the stream.
+	 */
+	public static Random newSharedRandom()
+	{
+		return new ThreadRandom(nextStream());
+	}
+	
+	/**
+	 * Return a Random that may be shared by threads, for general use such as generating values.
+	 */
+	public static Random random()
+	{
+		return random;
+	}
 	
       /**
        * Generate a random ASCII string of a given length.
@@ -46,11 +134,50 @@ public class Utils
       }
       
       /**
-       * Hash an integer value.
+       * Return a uniformly distributed long in [0, bound). Unlike scaling nextDouble(), this is unbiased
+       * and reaches every value even when bound exceeds 2^53.
+       * 
+       * @param r The source of randomness.
+       * @param bound The exclusive upper bound; must be positive.
+       */
+      public static long nextLong(Random r, long bound)
+      {
+	 long ret=r.nextLong();
+	 long m=bound-1;
+	 if ((bound&m)==0L)
+	 {
+	    //power of two
+	    return ret&m;
+	 }
+	 //reject the values of the last, partial interval so all residues are equally likely
+	 for (long u=ret>>>1; u+m-(ret=u%bound)<0L; u=r.nextLong()>>>1)
+	    ;
+	 return ret;
+      }
+      
+      /**
+       * The mask of the 63 bit domain of hash(long).
+       */
+      public static final long HASH_MASK=0x7fffffffffffffffL;
+      
+      /**
+       * Hash a key number. The hash is a bijection on [0, 2^63): distinct non-negative values always 
+       * produce distinct non-negative hashes, so hashed keys never collide, however large the keyspace.
+       * It is built from xor-shifts and multiplications by odd constants, each of which is invertible 
+       * modulo 2^63.
+       * 
+       * @param val The value to hash, in [0, 2^63).
+       * @return The hash value, in [0, 2^63).
        */
-      public static int hash(int val)
+      public static long hash(long val)
       {
-	 return FNVhash32(val);
+	 long x=val&HASH_MASK;
+	 x^=x>>>31;
+	 x=(x*0x7fb5d329728ea185L)&HASH_MASK;
+	 x^=x>>>27;
+	 x=(x*0x81dadef4bc2dd44dL)&HASH_MASK;
+	 x^=x>>>33;
+	 return x;
       }
 	
       public static final int FNV_offset_basis_32=0x811c9dc5;
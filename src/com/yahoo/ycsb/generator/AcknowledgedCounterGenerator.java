@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter whose values must be acknowledged once the work they stand for is done, e.g. once the record 
+ * with that key number has been inserted. lastLong() returns the highest value such that it and every value 
+ * below it have been acknowledged, so readers that stay at or below it never see a value whose work is 
+ * still in flight.
+ * 
+ * Acknowledgements are tracked in a sliding window of WINDOW_SIZE slots: the slot of a value holds the 
+ * value itself once it is acknowledged, so a slot never has to be cleared before reuse. Acknowledging and 
+ * advancing the limit are lock-free, and never wait for other threads.
+ * 
+ * The guarantee is bounded by the window. If a value is still outstanding when a value WINDOW_SIZE past it is
+ * acknowledged, e.g. because its insert is stuck on a slow server while the other threads complete WINDOW_SIZE
+ * inserts, the limit is advanced past the outstanding value rather than stalling every acknowledging thread 
+ * behind it. lastLong() may then include values whose work is still in flight, at most WINDOW_SIZE below the 
+ * highest acknowledged value, and their late acknowledgements are ignored.
+ */
+public class AcknowledgedCounterGenerator extends CounterGenerator
+{
+	/**
+	 * The number of values that can be outstanding (handed out but not acknowledged) beyond the limit.
+	 */
+	public static final int WINDOW_SIZE=1<<16;
+
+	static final int WINDOW_MASK=WINDOW_SIZE-1;
+
+	AtomicLongArray _window;
+	AtomicLong _limit;
+
+	/**
+	 * Create a counter that starts at countstart. All values below countstart count as acknowledged.
+	 */
+	public AcknowledgedCounterGenerator(long countstart)
+	{
+		super(countstart);
+		_window=new AtomicLongArray(WINDOW_SIZE);
+		for (int i=0; i<WINDOW_SIZE; i++)
+		{
+			_window.set(i,-1);
+		}
+		_limit=new AtomicLong(countstart-1);
+	}
+
+	/**
+	 * Return the highest value such that it and all values below it have been acknowledged.
+	 */
+	public long lastLong()
+	{
+		return _limit.get();
+	}
+
+	/**
+	 * Return the highest value handed out so far by nextLong(), whether it has been acknowledged or not.
+	 */
+	public long lastIssued()
+	{
+		return super.lastLong();
+	}
+
+	/**
+	 * Mark a value returned by nextLong() as done, and advance the limit past it if every value below it 
+	 * is done too. Each value must be acknowledged exactly once.
+	 */
+	public void acknowledge(long value)
+	{
+		//the slot is free once the value that used it last, value-WINDOW_SIZE, is at or below the limit. If it
+		//is not, that value has been outstanding for a whole window, so give up on it instead of waiting
+		for (;;)
+		{
+			long limit=_limit.get();
+			if ( (value-limit<=WINDOW_SIZE) || _limit.compareAndSet(limit,value-WINDOW_SIZE) )
+			{
+				break;
+			}
+		}
+		
+		//a slot only ever moves to a higher value, so the late acknowledgement of a value the limit was advanced
+		//past cannot overwrite the value that reuses its slot
+		int slot=(int)(value&WINDOW_MASK);
+		for (;;)
+		{
+			long old=_window.get(slot);
+			if ( (old>=value) || _window.compareAndSet(slot,old,value) )
+			{
+				break;
+			}
+		}
+
+		//advance the limit over every contiguous acknowledged value. Every acknowledging thread runs this 
+		//after publishing its own value, so the last one to publish always sees the complete run.
+		for (;;)
+		{
+			long limit=_limit.get();
+			long next=limit+1;
+			if (_window.get((int)(next&WINDOW_MASK))!=next)
+			{
+				break;
+			}
+			_limit.compareAndSet(limit,next);
+		}
+	}
+}
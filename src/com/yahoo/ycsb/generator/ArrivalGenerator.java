@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * Generates the arrival times of the operations of one client thread, for throttling it to a target throughput.
+ * Each call to nextArrival() returns the time of the next arrival, in milliseconds since the thread started; times
+ * never decrease.
+ */
+public abstract class ArrivalGenerator
+{
+	/**
+	 * Return the time of the next arrival, in milliseconds since the thread started.
+	 */
+	public abstract double nextArrival();
+
+	/**
+	 * Return the rate at which the last arrival was generated, in arrivals per millisecond.
+	 */
+	public abstract double getRate();
+}
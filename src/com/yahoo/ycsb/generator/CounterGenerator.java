@@ -17,33 +17,57 @@
 
 package com.yahoo.ycsb.generator;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * Generates a sequence of integers 0, 1, ...
+ * Generates a sequence of integers 0, 1, ... The counter is lock-free, so many threads can draw from it 
+ * without blocking each other.
  */
 public class CounterGenerator extends IntegerGenerator
 {
-	int counter;
+	AtomicLong counter;
 
 	/**
 	 * Create a counter that starts at countstart
 	 */
-	public CounterGenerator(int countstart)
+	public CounterGenerator(long countstart)
 	{
-		counter=countstart;
-		setLastInt(countstart-1);
+		counter=new AtomicLong(countstart);
 	}
 	
 	/**
 	 * If the generator returns numeric (integer) values, return the next value as an int. Default is to return -1, which
 	 * is appropriate for generators that do not return numeric values.
 	 */
-	public synchronized int nextInt() 
+	public int nextInt() 
 	{
-		int lastint=counter;
-		counter++;
-		setLastInt(lastint);
-		return lastint;
+		return (int)nextLong();
 	}
 
+	/**
+	 * Return the next value of the counter as a long.
+	 */
+	public long nextLong()
+	{
+		return counter.getAndIncrement();
+	}
 
+	/**
+	 * Return the highest value handed out so far. This is derived from the counter itself rather than 
+	 * recorded by nextLong(), so it never goes backwards when threads race.
+	 */
+	public long lastLong()
+	{
+		return counter.get()-1;
+	}
+
+	public int lastInt()
+	{
+		return (int)lastLong();
+	}
+
+	public String lastString()
+	{
+		return ""+lastLong();
+	}
 }
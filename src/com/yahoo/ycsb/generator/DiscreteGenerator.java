@@ -20,6 +20,7 @@ package com.yahoo.ycsb.generator;
 import java.util.Vector;
 import java.util.Random;
 
+import com.yahoo.ycsb.Utils;
 import com.yahoo.ycsb.WorkloadException;
 
 /**
@@ -46,7 +47,7 @@ public class DiscreteGenerator extends Generator
 	public DiscreteGenerator()
 	{
 		_values=new Vector<Pair>();
-		_random=new Random();
+		_random=Utils.newSharedRandom();
 		_lastvalue=null;
 	}
 
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * Generates Poisson arrivals whose rate follows a daily curve. The curve is a list of relative rates for equal slots 
+ * of the period, such as the 24 hours of a day, and repeats after the period, so that a day can be replayed in a 
+ * shorter time. The rates are scaled so that the busiest slot has the given peak rate.
+ */
+public class DiurnalArrivalGenerator extends ModulatedArrivalGenerator
+{
+	double[] _rates;
+	double _slotlength;
+	int _slot;
+	
+	/**
+	 * @param peakrate The number of arrivals per millisecond in the busiest slot.
+	 * @param curve The rate of each slot, relative to the others.
+	 * @param period The length of the whole curve, in milliseconds.
+	 * @param offset The point of the curve at which to start, in milliseconds since its start. A negative offset
+	 * counts back from the end of the curve.
+	 */
+	public DiurnalArrivalGenerator(double peakrate, double[] curve, double period, double offset)
+	{
+		double peak=0;
+		for (int i=0; i<curve.length; i++)
+		{
+			peak=Math.max(peak,curve[i]);
+		}
+		if (peak<=0)
+		{
+			throw new IllegalArgumentException("A diurnal curve needs at least one positive rate");
+		}
+		if (!(period>0))
+		{
+			throw new IllegalArgumentException("A diurnal period must be positive");
+		}
+		
+		_rates=new double[curve.length];
+		for (int i=0; i<curve.length; i++)
+		{
+			_rates[i]=peakrate*curve[i]/peak;
+		}
+		_slotlength=period/curve.length;
+		
+		//% keeps the sign of the offset, so move a negative one into the period
+		offset=((offset%period)+period)%period;
+		//rounding can put an offset just below the period in the slot after the last one
+		_slot=Math.min((int)(offset/_slotlength),_rates.length-1);
+		_rate=_rates[_slot];
+		_segmentend=(_slot+1)*_slotlength-offset;
+	}
+	
+	@Override
+	protected void nextSegment()
+	{
+		_slot=(_slot+1)%_rates.length;
+		_rate=_rates[_slot];
+		_segmentend+=_slotlength;
+	}
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * Rotates the values of another generator through its interval over time, so that whatever region the 
+ * underlying distribution favors (the head of a zipfian, the hot set of a hotspot) drifts through the 
+ * keyspace at a fixed rate. A value v of the underlying generator is returned as 
+ * lb+((v-lb+drift) mod (ub-lb+1)), where drift grows by rate items per second from the first call.
+ */
+public class DriftingIntegerGenerator extends IntegerGenerator
+{
+	IntegerGenerator _basis;
+	long _lb,_interval;
+	double _rate;
+	volatile long _start;
+
+	/**
+	 * Create a generator that rotates the values of basis through [lb,ub].
+	 * 
+	 * @param basis the generator whose values to rotate; its values must lie in [lb,ub]
+	 * @param lb the lower bound (inclusive) of generated values
+	 * @param ub the upper bound (inclusive) of generated values
+	 * @param rate the number of items the distribution moves by per second
+	 */
+	public DriftingIntegerGenerator(IntegerGenerator basis, long lb, long ub, double rate)
+	{
+		_basis=basis;
+		_lb=lb;
+		_interval=ub-lb+1;
+		_rate=rate;
+		_start=-1;
+	}
+
+	/**
+	 * Return the current displacement of the distribution, in items.
+	 */
+	public long getDrift()
+	{
+		long now=System.currentTimeMillis();
+		if (_start<0)
+		{
+			//racing threads may each set the start; they all read the clock within the same instant
+			_start=now;
+		}
+		long drift=((long)(_rate*(now-_start)/1000.0))%_interval;
+		if (drift<0)
+		{
+			drift+=_interval;
+		}
+		return drift;
+	}
+
+	@Override
+	public int nextInt()
+	{
+		return (int)nextLong();
+	}
+
+	@Override
+	public long nextLong()
+	{
+		long ret=_lb+((_basis.nextLong()-_lb+getDrift())%_interval);
+		setLastLong(ret);
+		return ret;
+	}
+
+	/**
+	 * Return the next value, with the rank the basis gave it before the rotation.
+	 */
+	@Override
+	public long nextRankedLong(long[] rank)
+	{
+		long ret=_lb+((_basis.nextRankedLong(rank)-_lb+getDrift())%_interval);
+		setLastLong(ret);
+		return ret;
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Generates exponentially distributed integers with a given mean, such as the think time between the requests
+ * of one user, or the time between the arrivals of a Poisson process. Values are rounded down, so the mean
+ * of the integers is about 0.5 below the given mean when the mean is small.
+ */
+public class ExponentialGenerator extends IntegerGenerator
+{
+	Random _random;
+	double _mean;
+	
+	/**
+	 * Create a generator of exponentially distributed integers.
+	 * 
+	 * @param mean The mean of the distribution.
+	 */
+	public ExponentialGenerator(double mean)
+	{
+		_random=Utils.newSharedRandom();
+		_mean=mean;
+	}
+	
+	/**
+	 * Return the next value as a double, without rounding.
+	 */
+	public double nextDouble()
+	{
+		//1-nextDouble() is in (0,1], so the logarithm is finite
+		return -_mean*Math.log(1.0-_random.nextDouble());
+	}
+	
+	@Override
+	public int nextInt()
+	{
+		return (int)nextLong();
+	}
+	
+	@Override
+	public long nextLong()
+	{
+		long ret=(long)nextDouble();
+		setLastLong(ret);
+		return ret;
+	}
+}
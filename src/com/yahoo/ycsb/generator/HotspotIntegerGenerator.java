@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+import com.yahoo.ycsb.FeistelPermutation;
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Generates integers from an interval in which a hot set receives a fixed share of the requests: 
+ * "hotopnfraction of the operations go to hotsetfraction of the items". Items are chosen uniformly 
+ * within the hot set and within the cold set.
+ * 
+ * The hot set normally starts at the lower bound and is contiguous. Its start can be moved with 
+ * setHotsetOffset() (it wraps around at the upper bound), and it can be scattered over the whole 
+ * interval by a keyed permutation, so that the hot items do not sit in one key range.
+ */
+public class HotspotIntegerGenerator extends IntegerGenerator
+{
+	Random _random;
+	long _lb,_ub,_interval;
+	long _hotinterval,_coldinterval;
+	double _hotsetfraction,_hotopnfraction;
+	volatile long _offset;
+	FeistelPermutation _scramble;
+
+	/**
+	 * Create a generator with a contiguous hot set at the start of [lb,ub].
+	 * 
+	 * @param lb the lower bound (inclusive) of generated values
+	 * @param ub the upper bound (inclusive) of generated values
+	 * @param hotsetfraction the fraction of the items in the hot set
+	 * @param hotopnfraction the fraction of the operations that access the hot set
+	 */
+	public HotspotIntegerGenerator(long lb, long ub, double hotsetfraction, double hotopnfraction)
+	{
+		this(lb,ub,hotsetfraction,hotopnfraction,false);
+	}
+
+	/**
+	 * Create a generator over [lb,ub], optionally scattering the hot set over the interval.
+	 * 
+	 * @param lb the lower bound (inclusive) of generated values
+	 * @param ub the upper bound (inclusive) of generated values
+	 * @param hotsetfraction the fraction of the items in the hot set
+	 * @param hotopnfraction the fraction of the operations that access the hot set
+	 * @param scrambled true to place the hot items throughout the interval instead of contiguously
+	 */
+	public HotspotIntegerGenerator(long lb, long ub, double hotsetfraction, double hotopnfraction, boolean scrambled)
+	{
+		if ( (hotsetfraction<0.0) || (hotsetfraction>1.0) )
+		{
+			throw new IllegalArgumentException("Hot set fraction must be between 0 and 1, was "+hotsetfraction);
+		}
+		if ( (hotopnfraction<0.0) || (hotopnfraction>1.0) )
+		{
+			throw new IllegalArgumentException("Hot operation fraction must be between 0 and 1, was "+hotopnfraction);
+		}
+		_random=Utils.newSharedRandom();
+		_lb=lb;
+		_ub=ub;
+		_interval=_ub-_lb+1;
+		_hotsetfraction=hotsetfraction;
+		_hotopnfraction=hotopnfraction;
+		_hotinterval=(long)(_interval*hotsetfraction);
+		_coldinterval=_interval-_hotinterval;
+		_offset=0;
+		if (scrambled)
+		{
+			_scramble=new FeistelPermutation(_interval,0);
+		}
+	}
+
+	/**
+	 * Move the start of the hot set to lb+offset. The hot set wraps around at the upper bound.
+	 * Can be called while other threads are generating values.
+	 */
+	public void setHotsetOffset(long offset)
+	{
+		_offset=((offset%_interval)+_interval)%_interval;
+	}
+
+	/**
+	 * Return the current offset of the hot set from the lower bound.
+	 */
+	public long getHotsetOffset()
+	{
+		return _offset;
+	}
+
+	/**
+	 * Return the number of items in the hot set.
+	 */
+	public long getHotsetSize()
+	{
+		return _hotinterval;
+	}
+
+	@Override
+	public int nextInt()
+	{
+		return (int)nextLong();
+	}
+
+	@Override
+	public long nextLong()
+	{
+		long index;
+		if ( (_coldinterval==0) || ( (_hotinterval>0) && (_random.nextDouble()<_hotopnfraction) ) )
+		{
+			index=Utils.nextLong(_random,_hotinterval);
+		}
+		else
+		{
+			index=_hotinterval+Utils.nextLong(_random,_coldinterval);
+		}
+
+		index=(index+_offset)%_interval;
+		if (_scramble!=null)
+		{
+			index=_scramble.permute(index);
+		}
+
+		long ret=_lb+index;
+		setLastLong(ret);
+		return ret;
+	}
+}
@@ -18,14 +18,16 @@
 package com.yahoo.ycsb.generator;
 
 /**
- * A generator that is capable of generating ints as well as strings
+ * A generator that is capable of generating ints as well as strings. Values are tracked as longs, so 
+ * generators over keyspaces larger than 2^31 can override nextLong() and report their values through 
+ * setLastLong() and lastLong().
  * 
  * @author cooperb
  *
  */
 public abstract class IntegerGenerator extends Generator 
 {
-	int lastint;
+	long lastint;
 	
 	/**
 	 * Set the last value generated. IntegerGenerator subclasses must use this call
@@ -36,17 +38,45 @@ public abstract class IntegerGenerator extends Generator
 		lastint=last;
 	}
 	
+	/**
+	 * Set the last value generated, for generators whose values may not fit in an int.
+	 */
+	public void setLastLong(long last)
+	{
+		lastint=last;
+	}
+	
 	/**
 	 * Return the next value as an int. When overriding this method, be sure to call setLastString() properly, or the lastString() call won't work.
 	 */
 	public abstract int nextInt();
 	
+	/**
+	 * Return the next value as a long. The default implementation returns nextInt(); generators whose values 
+	 * may exceed the int range must override this, and call setLastLong() properly.
+	 */
+	public long nextLong()
+	{
+		return nextInt();
+	}
+	
+	/**
+	 * Return the next value as a long, with its popularity rank: rank[0] is set to the rank of the value, 0 for the
+	 * most popular value, 1 for the next, and so on, and rank[1] to the number of ranks. Generators that do not rank 
+	 * their values set rank[0] to -1, which is what this default implementation does.
+	 */
+	public long nextRankedLong(long[] rank)
+	{
+		rank[0]=-1;
+		return nextLong();
+	}
+	
 	/**
 	 * Generate the next string in the distribution.
 	 */
 	public String nextString()
 	{
-		return ""+nextInt();
+		return ""+nextLong();
 	}
 	
 	/**
@@ -64,6 +94,14 @@ public abstract class IntegerGenerator extends Generator
 	 * IntegerGenerator subclasses always return ints for nextInt() (e.g. not arbitrary strings).
 	 */
 	public int lastInt()
+	{
+		return (int)lastint;
+	}
+	
+	/**
+	 * Return the previous value generated by the distribution, as a long.
+	 */
+	public long lastLong()
 	{
 		return lastint;
 	}
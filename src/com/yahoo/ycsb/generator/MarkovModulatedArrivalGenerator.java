@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * Generates the arrivals of a Markov-modulated Poisson process. A hidden state moves between a number of states, 
+ * staying in each for an exponentially distributed time, and then jumping to one of the other states with equal
+ * probability. In each state, arrivals are Poisson with that state's rate. The rates are given relative to each other,
+ * and scaled so that the mean rate over time is the given rate.
+ */
+public class MarkovModulatedArrivalGenerator extends ModulatedArrivalGenerator
+{
+	double[] _rates;
+	double[] _sojourns;
+	int _state;
+	
+	/**
+	 * @param rate The mean number of arrivals per millisecond, over all states.
+	 * @param relativerates The rate of each state, relative to the others.
+	 * @param sojourns The mean time spent in each state per visit, in milliseconds.
+	 */
+	public MarkovModulatedArrivalGenerator(double rate, double[] relativerates, double[] sojourns)
+	{
+		if ( (relativerates.length!=sojourns.length) || (relativerates.length<2) )
+		{
+			throw new IllegalArgumentException("A Markov-modulated process needs a rate and a sojourn time for each of at least two states");
+		}
+		
+		//with equally likely jumps, every state is visited equally often, so the time spent in each state is in 
+		//proportion to its sojourn time
+		double totaltime=0;
+		double totalarrivals=0;
+		for (int i=0; i<relativerates.length; i++)
+		{
+			totaltime+=sojourns[i];
+			totalarrivals+=relativerates[i]*sojourns[i];
+		}
+		
+		_rates=new double[relativerates.length];
+		for (int i=0; i<relativerates.length; i++)
+		{
+			_rates[i]=rate*relativerates[i]*totaltime/totalarrivals;
+		}
+		_sojourns=sojourns;
+		_state=_random.nextInt(_rates.length);
+		_rate=_rates[_state];
+		_segmentend=nextExponential(_sojourns[_state]);
+	}
+	
+	@Override
+	protected void nextSegment()
+	{
+		//jump to one of the other states
+		_state=(_state+1+_random.nextInt(_rates.length-1))%_rates.length;
+		_rate=_rates[_state];
+		_segmentend+=nextExponential(_sojourns[_state]);
+	}
+}
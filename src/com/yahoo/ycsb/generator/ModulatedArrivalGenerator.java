@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Generates the arrivals of a Poisson process whose rate is constant over segments of time, such as the on and off
+ * periods of bursty traffic. Subclasses choose the segments. Since the gaps between arrivals are exponentially 
+ * distributed and memoryless, the gap that crosses the end of a segment is simply drawn again at the rate of the next segment.
+ */
+public abstract class ModulatedArrivalGenerator extends ArrivalGenerator
+{
+	Random _random;
+	double _time;
+	
+	/**
+	 * The rate of the current segment, in arrivals per millisecond. May be zero.
+	 */
+	protected double _rate;
+	
+	/**
+	 * The end of the current segment, in milliseconds since the thread started.
+	 */
+	protected double _segmentend;
+	
+	public ModulatedArrivalGenerator()
+	{
+		_random=Utils.newSharedRandom();
+		_time=0;
+		_rate=0;
+		_segmentend=0;
+	}
+	
+	/**
+	 * Start the segment that begins at _segmentend, by setting _rate and moving _segmentend to its end.
+	 */
+	protected abstract void nextSegment();
+	
+	/**
+	 * Return an exponentially distributed time with the given mean.
+	 */
+	protected double nextExponential(double mean)
+	{
+		return -mean*Math.log(1.0-_random.nextDouble());
+	}
+	
+	@Override
+	public double nextArrival()
+	{
+		while (true)
+		{
+			if (_rate>0)
+			{
+				double arrival=_time+nextExponential(1.0/_rate);
+				if (arrival<=_segmentend)
+				{
+					_time=arrival;
+					return _time;
+				}
+			}
+			_time=_segmentend;
+			nextSegment();
+		}
+	}
+	
+	@Override
+	public double getRate()
+	{
+		return _rate;
+	}
+}
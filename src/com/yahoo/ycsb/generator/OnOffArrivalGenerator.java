@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * Generates bursts: Poisson arrivals during on periods, and none during off periods. The lengths of the periods are
+ * exponentially distributed. The rate during on periods is raised so that the mean rate over time is the given rate.
+ */
+public class OnOffArrivalGenerator extends ModulatedArrivalGenerator
+{
+	double _onrate;
+	double _meanon;
+	double _meanoff;
+	boolean _on;
+	
+	/**
+	 * @param rate The mean number of arrivals per millisecond, over on and off periods.
+	 * @param meanon The mean length of an on period, in milliseconds.
+	 * @param meanoff The mean length of an off period, in milliseconds.
+	 */
+	public OnOffArrivalGenerator(double rate, double meanon, double meanoff)
+	{
+		_onrate=rate*(meanon+meanoff)/meanon;
+		_meanon=meanon;
+		_meanoff=meanoff;
+		//start in an off period of length zero, so the first segment is an on period
+		_on=false;
+	}
+	
+	@Override
+	protected void nextSegment()
+	{
+		_on=!_on;
+		if (_on)
+		{
+			_rate=_onrate;
+			_segmentend+=nextExponential(_meanon);
+		}
+		else
+		{
+			_rate=0;
+			_segmentend+=nextExponential(_meanoff);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * Generates Poisson arrivals: the gaps between arrivals are exponentially distributed and independent, as for
+ * requests from a large number of independent users.
+ */
+public class PoissonArrivalGenerator extends ModulatedArrivalGenerator
+{
+	/**
+	 * @param rate The mean number of arrivals per millisecond.
+	 */
+	public PoissonArrivalGenerator(double rate)
+	{
+		_rate=rate;
+		_segmentend=Double.POSITIVE_INFINITY;
+	}
+	
+	@Override
+	protected void nextSegment()
+	{
+		//the one segment never ends
+	}
+}
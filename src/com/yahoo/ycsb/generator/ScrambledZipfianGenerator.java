@@ -103,7 +103,21 @@ public class ScrambledZipfianGenerator extends IntegerGenerator
 	{
 		long ret=gen.nextLong();
 		ret=_min+Utils.FNVhash64(ret)%_itemcount;
-		setLastInt((int)ret);
+		setLastLong(ret);
+		return ret;
+	}
+	
+	/**
+	 * Return the next value, with the rank of the zipfian draw it was scrambled from. Draws beyond the item count
+	 * fold onto items that have more popular draws of their own, so their ranks are at least the item count.
+	 */
+	public long nextRankedLong(long[] rank)
+	{
+		long draw=gen.nextLong();
+		long ret=_min+Utils.FNVhash64(draw)%_itemcount;
+		setLastLong(ret);
+		rank[0]=draw;
+		rank[1]=_itemcount;
 		return ret;
 	}
 	
@@ -28,8 +28,8 @@ public class SkewedLatestGenerator extends IntegerGenerator
 	public SkewedLatestGenerator(CounterGenerator basis)
 	{
 		_basis=basis;
-		_zipfian=new ZipfianGenerator(Integer.parseInt(_basis.lastString()));
-		nextInt();
+		_zipfian=new ZipfianGenerator(_basis.lastLong());
+		nextLong();
 	}
 
 	/**
@@ -37,10 +37,32 @@ public class SkewedLatestGenerator extends IntegerGenerator
 	 */
 	public int nextInt()
 	{
-		int max=Integer.parseInt(_basis.lastString());
-		int nextint=max-_zipfian.nextInt(max);
-		setLastInt(nextint);
-		return nextint;
+		return (int)nextLong();
+	}
+
+	/**
+	 * Generate the next value in the distribution as a long, skewed Zipfian favoring the items most recently returned by the basis generator.
+	 */
+	public long nextLong()
+	{
+		long max=_basis.lastLong();
+		long next=max-_zipfian.nextLong(max);
+		setLastLong(next);
+		return next;
+	}
+	
+	/**
+	 * Return the next value; its rank is its distance from the latest item.
+	 */
+	public long nextRankedLong(long[] rank)
+	{
+		long max=_basis.lastLong();
+		long distance=_zipfian.nextLong(max);
+		long next=max-distance;
+		setLastLong(next);
+		rank[0]=distance;
+		rank[1]=max+1;
+		return next;
 	}
 
 	public static void main(String[] args)
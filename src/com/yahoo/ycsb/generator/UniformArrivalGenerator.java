@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * Generates evenly spaced arrivals at a fixed rate. This is how the client has always throttled to a target throughput.
+ */
+public class UniformArrivalGenerator extends ArrivalGenerator
+{
+	double _rate;
+	long _arrivals;
+	
+	/**
+	 * @param rate The number of arrivals per millisecond.
+	 */
+	public UniformArrivalGenerator(double rate)
+	{
+		_rate=rate;
+		_arrivals=0;
+	}
+	
+	@Override
+	public double nextArrival()
+	{
+		//multiply rather than add, so that rounding errors do not accumulate over many arrivals
+		_arrivals++;
+		return ((double)_arrivals)/_rate;
+	}
+	
+	@Override
+	public double getRate()
+	{
+		return _rate;
+	}
+}
@@ -19,6 +19,8 @@ package com.yahoo.ycsb.generator;
 
 import java.util.Random;
 
+import com.yahoo.ycsb.Utils;
+
 /**
  * A generator of a zipfian distribution. It produces a sequence of items, such that some items are more popular than others, according
  * to a zipfian distribution. When you construct an instance of this class, you specify the number of items in the set to draw from, either
@@ -136,7 +138,7 @@ public class ZipfianGenerator extends IntegerGenerator
 		base=min;
 		zipfianconstant=_zipfianconstant;
 
-		random=new Random();	 
+		random=Utils.newSharedRandom();	 
 
 		theta=zipfianconstant;
 
@@ -287,7 +289,7 @@ public class ZipfianGenerator extends IntegerGenerator
 		}
 
 		long ret=base+(long)((itemcount) * Math.pow(eta*u - eta + 1, alpha));
-		setLastInt((int)ret);
+		setLastLong(ret);
 		return ret;
 	}
 
@@ -312,6 +314,18 @@ public class ZipfianGenerator extends IntegerGenerator
 		return nextLong(items);
 	}
 	
+	/**
+	 * Return the next value; its rank is its distance from the most popular item.
+	 */
+	public long nextRankedLong(long[] rank)
+	{
+		long ret=nextLong(items);
+		//the two most popular items are returned without the base
+		rank[0]=ret<base ? ret : ret-base;
+		rank[1]=items;
+		return ret;
+	}
+	
 	public static void main(String[] args)
 	{
 		new ZipfianGenerator(ScrambledZipfianGenerator.ITEM_COUNT);
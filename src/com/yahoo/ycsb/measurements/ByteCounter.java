@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+/**
+ * Counts the key and value bytes moved by one client thread for one operation type. 
+ * 
+ * Each counter has a single writer (the client thread that owns it), so updates are plain 
+ * increments of volatile fields and never contend. Readers such as the status thread sum 
+ * the counters of all threads through Measurements.
+ */
+public class ByteCounter
+{
+	volatile long _sent;
+	volatile long _received;
+
+	/**
+	 * Add the bytes of one operation. Must only be called by the thread that owns this counter.
+	 * 
+	 * @param sent bytes sent to the database (keys and written values)
+	 * @param received bytes received from the database (values read)
+	 */
+	public void add(long sent, long received)
+	{
+		_sent+=sent;
+		_received+=received;
+	}
+
+	/**
+	 * Return the number of bytes sent so far.
+	 */
+	public long getSent()
+	{
+		return _sent;
+	}
+
+	/**
+	 * Return the number of bytes received so far.
+	 */
+	public long getReceived()
+	{
+		return _received;
+	}
+}
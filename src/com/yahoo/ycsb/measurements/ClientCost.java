@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures what one client thread itself costs, in CPU time and allocated bytes, for one DB binding. One in every 
+ * N operations is sampled, reading the thread's CPU time and allocated bytes from the ThreadMXBean before and after 
+ * the call into the binding, and the totals are also read when the thread starts and stops its operations, so that 
+ * the cost of the workload around the calls is included in the per operation averages of the thread. 
+ * 
+ * Each record has a single writer (the client thread that owns it); Measurements sums the records of all threads
+ * when exporting, after the threads have finished.
+ */
+public class ClientCost
+{
+	final String _name;
+	final int _sample;
+	final com.sun.management.ThreadMXBean _threadbean;
+	long _threadid;
+
+	int _countdown;
+	long _stcpu;
+	long _stallocated;
+
+	//per operation type, indexed by the EventLog operation codes
+	long[] _samples=new long[EventLog.OPERATION_NAMES.length];
+	long[] _cpu=new long[EventLog.OPERATION_NAMES.length];
+	long[] _allocated=new long[EventLog.OPERATION_NAMES.length];
+
+	long _operations;
+	long _begincpu=-1;
+	long _beginallocated;
+	long _totalcpu;
+	long _totalallocated;
+
+	/**
+	 * @param name The name the cost is reported under, such as "CLIENT-COST-BasicDB".
+	 * @param sample Sample one in this many operations.
+	 */
+	public ClientCost(String name, int sample)
+	{
+		_name=name;
+		_sample=sample;
+		_countdown=1;
+		_threadbean=(com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+	}
+
+	public String getName()
+	{
+		return _name;
+	}
+
+	/**
+	 * Mark the start of the thread's operations. Must only be called by the thread that owns this record, as must the
+	 * other methods that update it.
+	 */
+	public void begin()
+	{
+		//the record is created by the thread that creates the DB, which need not be the thread that uses it
+		_threadid=Thread.currentThread().getId();
+		_begincpu=_threadbean.getCurrentThreadCpuTime();
+		_beginallocated=_threadbean.getThreadAllocatedBytes(_threadid);
+	}
+
+	/**
+	 * Mark the end of the thread's operations.
+	 */
+	public void end()
+	{
+		if (_begincpu>=0)
+		{
+			_totalcpu+=_threadbean.getCurrentThreadCpuTime()-_begincpu;
+			_totalallocated+=_threadbean.getThreadAllocatedBytes(_threadid)-_beginallocated;
+			_begincpu=-1;
+		}
+	}
+
+	/**
+	 * Count an operation that is about to start, returning true if it is sampled, in which case endOperation() must 
+	 * be called when it completes.
+	 */
+	public boolean startOperation()
+	{
+		_operations++;
+		if (--_countdown>0)
+		{
+			return false;
+		}
+		_countdown=_sample;
+		_stallocated=_threadbean.getThreadAllocatedBytes(_threadid);
+		_stcpu=_threadbean.getCurrentThreadCpuTime();
+		return true;
+	}
+
+	/**
+	 * Record the cost of a sampled operation.
+	 * 
+	 * @param operation The type of the operation, one of the EventLog operation codes.
+	 */
+	public void endOperation(int operation)
+	{
+		long cpu=_threadbean.getCurrentThreadCpuTime();
+		long allocated=_threadbean.getThreadAllocatedBytes(_threadid);
+		_samples[operation]++;
+		_cpu[operation]+=cpu-_stcpu;
+		_allocated[operation]+=allocated-_stallocated;
+	}
+}
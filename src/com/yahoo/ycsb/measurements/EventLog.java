@@ -0,0 +1,294 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Logs every operation of one client thread as a fixed-width binary record, for analyses that need more than 
+ * histograms. Records are written into a memory-mapped segment file, and when a segment is full the log rolls over
+ * to the next one, so appending takes no locks, no system calls and no allocation; the operating system writes the 
+ * pages out, even if the client dies. With a limit on the number of segments, the segments form a ring, and the
+ * oldest is overwritten.
+ * 
+ * Segment files are named &lt;prefix&gt;.&lt;thread&gt;.&lt;slot&gt;, and are SEGMENT_HEADER_SIZE bytes of header
+ * followed by RECORD_SIZE byte records, all little endian:
+ * <UL>
+ * <LI>header: the 8 byte magic "YCSBEVT1", the record size (int), the thread number (int), the sequence number of the segment in the thread's log (long) and 8 reserved bytes
+ * <LI>record: the start time in nanoseconds since the epoch (long), the latency in nanoseconds (long), the operation (int, READ=1 to DELETE=5), the return code (int), the thread number (int) and 4 reserved bytes
+ * </UL>
+ * The unused end of the last segment is zero, which is not a valid operation. EventLogConverter turns segments into
+ * CSV or column files.
+ */
+public class EventLog
+{
+	public static final byte[] MAGIC={'Y','C','S','B','E','V','T','1'};
+	
+	public static final int SEGMENT_HEADER_SIZE=32;
+	
+	public static final int RECORD_SIZE=32;
+	
+	public static final int READ=1;
+	public static final int UPDATE=2;
+	public static final int INSERT=3;
+	public static final int SCAN=4;
+	public static final int DELETE=5;
+	
+	public static final String[] OPERATION_NAMES={"","READ","UPDATE","INSERT","SCAN","DELETE"};
+	
+	/**
+	 * Times are nanoTime() values shifted to the epoch, so they are precise and can be matched with other logs.
+	 */
+	static final long EPOCH_NANOS=System.currentTimeMillis()*1000000L;
+	static final long NANO_ORIGIN=System.nanoTime();
+	
+	/**
+	 * One in this many appends is timed, to report the cost of logging without adding to it much.
+	 */
+	static final int TIMING_SAMPLE=1024;
+	
+	/**
+	 * sun.misc.Unsafe and its invokeCleaner method, to unmap a segment when the log is done with it rather than when
+	 * the buffer is garbage collected; null if this JVM does not have them.
+	 */
+	static final Object UNSAFE;
+	static final Method INVOKE_CLEANER;
+	
+	static
+	{
+		Object unsafe=null;
+		Method invokecleaner=null;
+		try
+		{
+			Class<?> unsafeclass=Class.forName("sun.misc.Unsafe");
+			Field field=unsafeclass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			invokecleaner=unsafeclass.getMethod("invokeCleaner",ByteBuffer.class);
+			unsafe=field.get(null);
+		}
+		catch (Exception e)
+		{
+			invokecleaner=null;
+		}
+		UNSAFE=unsafe;
+		INVOKE_CLEANER=invokecleaner;
+	}
+	
+	final String _prefix;
+	final int _thread;
+	final long _segmentsize;
+	final int _maxsegments;
+	
+	RandomAccessFile _file;
+	MappedByteBuffer _buffer;
+	long _segment;
+	int _position;
+	int _limit;
+	
+	long _events;
+	long _timedappends;
+	long _appendnanos;
+	
+	/**
+	 * @param prefix The prefix of the segment file names.
+	 * @param thread The number of the thread that owns this log.
+	 * @param segmentsize The size of each segment file, in bytes.
+	 * @param maxsegments The number of segment files to keep before overwriting the oldest, or 0 to keep them all.
+	 */
+	public EventLog(String prefix, int thread, long segmentsize, int maxsegments) throws IOException
+	{
+		_prefix=prefix;
+		_thread=thread;
+		_segmentsize=Math.max(SEGMENT_HEADER_SIZE+RECORD_SIZE,Math.min(segmentsize,Integer.MAX_VALUE));
+		_maxsegments=maxsegments;
+		_segment=-1;
+		openSegment();
+	}
+	
+	/**
+	 * Return the name of the file of a segment.
+	 */
+	String segmentFile(long segment)
+	{
+		long slot=_maxsegments>0 ? segment%_maxsegments : segment;
+		return _prefix+"."+_thread+"."+slot;
+	}
+	
+	void openSegment() throws IOException
+	{
+		closeSegment();
+		_segment++;
+		
+		_file=new RandomAccessFile(segmentFile(_segment),"rw");
+		//a reused segment file is never truncated, since a mapping of it may not have been released yet, and 
+		//accessing a mapping beyond the end of its file crashes the JVM; it is cleared through the new mapping instead
+		boolean reused=_file.length()>0;
+		_file.setLength(_segmentsize);
+		_buffer=_file.getChannel().map(FileChannel.MapMode.READ_WRITE,0,_segmentsize);
+		_buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (reused)
+		{
+			//clear it, so that its old records are not read as new ones
+			for (int p=0; p<=_segmentsize-8; p+=8)
+			{
+				_buffer.putLong(p,0);
+			}
+		}
+		
+		_buffer.put(MAGIC);
+		_buffer.putInt(RECORD_SIZE);
+		_buffer.putInt(_thread);
+		_buffer.putLong(_segment);
+		_position=SEGMENT_HEADER_SIZE;
+		_limit=(int)(_segmentsize-RECORD_SIZE);
+	}
+	
+	void closeSegment() throws IOException
+	{
+		if (_file!=null)
+		{
+			MappedByteBuffer buffer=_buffer;
+			_buffer=null;
+			if (buffer!=null)
+			{
+				buffer.force();
+				unmap(buffer);
+			}
+			_file.close();
+			_file=null;
+		}
+	}
+	
+	/**
+	 * Release the mapping of a segment, if this JVM allows it. The buffer must not be used afterwards.
+	 */
+	static void unmap(MappedByteBuffer buffer)
+	{
+		if (INVOKE_CLEANER==null)
+		{
+			return;
+		}
+		try
+		{
+			INVOKE_CLEANER.invoke(UNSAFE,buffer);
+		}
+		catch (Exception e)
+		{
+			//the mapping is released when the buffer is garbage collected instead
+		}
+	}
+	
+	/**
+	 * Append the record of one operation. Must only be called by the thread that owns this log. An error writing 
+	 * a new segment stops the log, rather than the run.
+	 * 
+	 * @param start The start time of the operation, as returned by System.nanoTime().
+	 * @param latency The latency of the operation in nanoseconds.
+	 */
+	public void append(int operation, long start, long latency, int returncode)
+	{
+		if (_buffer==null)
+		{
+			return;
+		}
+		
+		boolean timed=(_events%TIMING_SAMPLE)==0;
+		long st=timed ? System.nanoTime() : 0;
+		
+		if (_position>_limit)
+		{
+			try
+			{
+				openSegment();
+			}
+			catch (IOException e)
+			{
+				System.err.println("Could not open event log segment "+segmentFile(_segment)+", no longer logging: "+e.getMessage());
+				_buffer=null;
+				return;
+			}
+		}
+		
+		MappedByteBuffer b=_buffer;
+		int p=_position;
+		b.putLong(p,EPOCH_NANOS+(start-NANO_ORIGIN));
+		b.putLong(p+8,latency);
+		b.putInt(p+16,operation);
+		b.putInt(p+20,returncode);
+		b.putInt(p+24,_thread);
+		_position=p+RECORD_SIZE;
+		_events++;
+		
+		if (timed)
+		{
+			_appendnanos+=System.nanoTime()-st;
+			_timedappends++;
+		}
+	}
+	
+	/**
+	 * Return the number of events logged.
+	 */
+	public long getEvents()
+	{
+		return _events;
+	}
+	
+	/**
+	 * Return the number of segments written, including ones that were overwritten.
+	 */
+	public long getSegments()
+	{
+		return _segment+1;
+	}
+	
+	/**
+	 * Return the total time of the timed appends, in nanoseconds.
+	 */
+	public long getAppendNanos()
+	{
+		return _appendnanos;
+	}
+	
+	/**
+	 * Return the number of appends that were timed.
+	 */
+	public long getTimedAppends()
+	{
+		return _timedappends;
+	}
+	
+	public void close()
+	{
+		try
+		{
+			closeSegment();
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not close event log segment "+segmentFile(_segment)+": "+e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,250 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Vector;
+
+/**
+ * Converts the segment files of event logs (see EventLog) to a CSV file, or to column files: one file per column
+ * of little endian values (start.i64, latency.i64, operation.i32, returncode.i32, thread.i32), which analysis tools
+ * can load as arrays, with a schema.txt describing them. Segments are converted in order of thread and sequence 
+ * number, whatever the order in which they are given.
+ */
+public class EventLogConverter
+{
+	/**
+	 * The header of one segment file.
+	 */
+	static class Segment
+	{
+		String file;
+		int thread;
+		long sequence;
+	}
+	
+	/**
+	 * Receives the records read from the segments.
+	 */
+	interface Sink
+	{
+		void record(long start, long latency, int operation, int returncode, int thread) throws IOException;
+		
+		void close() throws IOException;
+	}
+	
+	public static void usageMessage()
+	{
+		System.out.println("Usage: java com.yahoo.ycsb.measurements.EventLogConverter (-csv <file> | -columns <directory>) <segment files>");
+		System.out.println("  Converts event log segments, written with -p eventlog=<prefix>, to a CSV file or to one file per column");
+	}
+	
+	public static void main(String[] args)
+	{
+		if ( (args.length<3) || ( (args[0].compareTo("-csv")!=0) && (args[0].compareTo("-columns")!=0) ) )
+		{
+			usageMessage();
+			System.exit(0);
+		}
+		
+		try
+		{
+			Vector<Segment> segments=new Vector<Segment>();
+			for (int i=2; i<args.length; i++)
+			{
+				segments.add(readHeader(args[i]));
+			}
+			Collections.sort(segments,new Comparator<Segment>()
+			{
+				public int compare(Segment a, Segment b)
+				{
+					if (a.thread!=b.thread)
+					{
+						return a.thread<b.thread ? -1 : 1;
+					}
+					return a.sequence<b.sequence ? -1 : (a.sequence>b.sequence ? 1 : 0);
+				}
+			});
+			
+			Sink sink=args[0].compareTo("-csv")==0 ? new CSVSink(args[1]) : new ColumnSink(args[1]);
+			long count=0;
+			try
+			{
+				for (Segment s : segments)
+				{
+					count+=convert(s,sink);
+				}
+			}
+			finally
+			{
+				sink.close();
+			}
+			System.err.println("Converted "+count+" events from "+segments.size()+" segments");
+		}
+		catch (IOException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+	
+	static MappedByteBuffer map(String file) throws IOException
+	{
+		RandomAccessFile f=new RandomAccessFile(file,"r");
+		try
+		{
+			MappedByteBuffer b=f.getChannel().map(FileChannel.MapMode.READ_ONLY,0,f.length());
+			b.order(ByteOrder.LITTLE_ENDIAN);
+			return b;
+		}
+		finally
+		{
+			f.close();
+		}
+	}
+	
+	static Segment readHeader(String file) throws IOException
+	{
+		MappedByteBuffer b=map(file);
+		byte[] magic=new byte[EventLog.MAGIC.length];
+		if (b.limit()<EventLog.SEGMENT_HEADER_SIZE)
+		{
+			throw new IOException(file+" is not an event log segment");
+		}
+		b.get(magic);
+		if ( (!Arrays.equals(magic,EventLog.MAGIC)) || (b.getInt()!=EventLog.RECORD_SIZE) )
+		{
+			throw new IOException(file+" is not an event log segment");
+		}
+		Segment s=new Segment();
+		s.file=file;
+		s.thread=b.getInt();
+		s.sequence=b.getLong();
+		return s;
+	}
+	
+	/**
+	 * Pass the records of one segment to the sink, returning the number of records.
+	 */
+	static long convert(Segment s, Sink sink) throws IOException
+	{
+		MappedByteBuffer b=map(s.file);
+		long count=0;
+		for (int p=EventLog.SEGMENT_HEADER_SIZE; p+EventLog.RECORD_SIZE<=b.limit(); p+=EventLog.RECORD_SIZE)
+		{
+			int operation=b.getInt(p+16);
+			if (operation==0)
+			{
+				break;
+			}
+			sink.record(b.getLong(p),b.getLong(p+8),operation,b.getInt(p+20),b.getInt(p+24));
+			count++;
+		}
+		return count;
+	}
+	
+	static class CSVSink implements Sink
+	{
+		BufferedWriter _out;
+		StringBuilder _line=new StringBuilder();
+		
+		CSVSink(String file) throws IOException
+		{
+			_out=new BufferedWriter(new FileWriter(file),1<<16);
+			_out.write("start_ns,latency_ns,operation,return_code,thread\n");
+		}
+		
+		public void record(long start, long latency, int operation, int returncode, int thread) throws IOException
+		{
+			_line.setLength(0);
+			_line.append(start).append(',').append(latency).append(',');
+			_line.append(operation<EventLog.OPERATION_NAMES.length ? EventLog.OPERATION_NAMES[operation] : Integer.toString(operation));
+			_line.append(',').append(returncode).append(',').append(thread).append('\n');
+			_out.write(_line.toString());
+		}
+		
+		public void close() throws IOException
+		{
+			_out.close();
+		}
+	}
+	
+	static class ColumnSink implements Sink
+	{
+		File _dir;
+		DataOutputStream[] _columns;
+		long _rows;
+		
+		static final String[] COLUMNS={"start.i64","latency.i64","operation.i32","returncode.i32","thread.i32"};
+		
+		ColumnSink(String dir) throws IOException
+		{
+			_dir=new File(dir);
+			if ( (!_dir.isDirectory()) && (!_dir.mkdirs()) )
+			{
+				throw new IOException("Could not create directory "+dir);
+			}
+			_columns=new DataOutputStream[COLUMNS.length];
+			for (int i=0; i<COLUMNS.length; i++)
+			{
+				_columns[i]=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(_dir,COLUMNS[i])),1<<16));
+			}
+		}
+		
+		public void record(long start, long latency, int operation, int returncode, int thread) throws IOException
+		{
+			//DataOutputStream is big endian, and the columns are little endian
+			_columns[0].writeLong(Long.reverseBytes(start));
+			_columns[1].writeLong(Long.reverseBytes(latency));
+			_columns[2].writeInt(Integer.reverseBytes(operation));
+			_columns[3].writeInt(Integer.reverseBytes(returncode));
+			_columns[4].writeInt(Integer.reverseBytes(thread));
+			_rows++;
+		}
+		
+		public void close() throws IOException
+		{
+			for (DataOutputStream column : _columns)
+			{
+				column.close();
+			}
+			BufferedWriter schema=new BufferedWriter(new FileWriter(new File(_dir,"schema.txt")));
+			schema.write("rows "+_rows+"\n");
+			schema.write("start.i64 int64 start time, nanoseconds since the epoch\n");
+			schema.write("latency.i64 int64 latency, nanoseconds\n");
+			schema.write("operation.i32 int32 operation: 1=READ 2=UPDATE 3=INSERT 4=SCAN 5=DELETE\n");
+			schema.write("returncode.i32 int32 return code of the operation\n");
+			schema.write("thread.i32 int32 client thread number\n");
+			schema.write("all columns are little endian\n");
+			schema.close();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Vector;
+
+/**
+ * The key popularity band of one client thread's current operation, and that thread's latency histograms by band.
+ *
+ * Only the owning thread uses this, so nothing is locked while measuring. The histograms are read once the client
+ * threads are done, to merge them for export.
+ */
+class KeyBands
+{
+	/**
+	 * {rank, ranks, band} of the current operation's key; band is -1 if it has none.
+	 */
+	final long[] _rank={-1,0,-1};
+
+	final String[] _bandnames;
+	final Properties _props;
+
+	/**
+	 * Histograms by namespace, then by operation, then by band.
+	 */
+	final HashMap<String,HashMap<String,OneMeasurementHistogram[]>> _histograms=new HashMap<String,HashMap<String,OneMeasurementHistogram[]>>();
+
+	KeyBands(String[] bandnames, Properties props)
+	{
+		_bandnames=bandnames;
+		_props=props;
+	}
+
+	/**
+	 * Measure a latency in the band of the current operation, if it has one.
+	 */
+	void measure(String namespace, String operation, int latency)
+	{
+		int band=(int)_rank[2];
+		if (band<0)
+		{
+			return;
+		}
+		HashMap<String,OneMeasurementHistogram[]> operations=_histograms.get(namespace);
+		if (operations==null)
+		{
+			operations=new HashMap<String,OneMeasurementHistogram[]>();
+			_histograms.put(namespace,operations);
+		}
+		OneMeasurementHistogram[] bands=operations.get(operation);
+		if (bands==null)
+		{
+			bands=new OneMeasurementHistogram[_bandnames.length];
+			operations.put(operation,bands);
+		}
+		if (bands[band]==null)
+		{
+			bands[band]=new OneMeasurementHistogram(namespace+operation+_bandnames[band],_props);
+		}
+		bands[band].record(latency);
+	}
+
+	/**
+	 * Return the histograms of all the bands measured so far.
+	 */
+	Vector<OneMeasurementHistogram> getHistograms()
+	{
+		Vector<OneMeasurementHistogram> ret=new Vector<OneMeasurementHistogram>();
+		for (HashMap<String,OneMeasurementHistogram[]> operations : _histograms.values())
+		{
+			for (OneMeasurementHistogram[] bands : operations.values())
+			{
+				for (OneMeasurementHistogram histogram : bands)
+				{
+					if (histogram!=null)
+					{
+						ret.add(histogram);
+					}
+				}
+			}
+		}
+		return ret;
+	}
+}
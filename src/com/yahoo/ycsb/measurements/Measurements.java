@@ -18,8 +18,14 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.Vector;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
@@ -35,10 +41,62 @@ public class Measurements
 
 	private static final String MEASUREMENT_TYPE_DEFAULT = "histogram";
 
+	/**
+	 * Bytes per megabyte, for reporting byte throughput in MB/sec.
+	 */
+	public static final double BYTES_PER_MB=1024.0*1024.0;
+
+	/**
+	 * The property for the key popularity bands: a comma separated list of increasing fractions of the keyspace, such 
+	 * as "0.001,0.01,0.1". Operations on keys whose popularity rank the workload knows are also measured per band, as
+	 * READ-TOP0.1%, READ-TOP1%, READ-TOP10% and READ-REST. Not set by default.
+	 */
+	public static final String KEY_RANK_BANDS="keyrankbands";
+
+	/**
+	 * The property for the number of slowest operations to report, with their keys and start times, as SLOWEST. 
+	 * Each client thread keeps this many of its own slowest operations. Not reported by default.
+	 */
+	public static final String SLOWEST_OPERATIONS="slowestoperations";
+	public static final String SLOWEST_OPERATIONS_DEFAULT="0";
+
+	/**
+	 * The properties for the raw event log: the prefix of the segment files, which turns the log on, the size of each
+	 * segment in bytes, and the number of segments each thread keeps before overwriting its oldest (0 for all).
+	 */
+	public static final String EVENT_LOG="eventlog";
+	public static final String EVENT_LOG_SEGMENT_SIZE="eventlogsegmentsize";
+	public static final String EVENT_LOG_SEGMENT_SIZE_DEFAULT="67108864";
+	public static final String EVENT_LOG_SEGMENTS="eventlogsegments";
+	public static final String EVENT_LOG_SEGMENTS_DEFAULT="0";
+
+	/**
+	 * The property for measuring the client's own CPU time and allocated bytes per operation: sample one in this many
+	 * operations of each client thread. Reported as CLIENT-COST-&lt;binding&gt;. Not measured by default.
+	 */
+	public static final String CLIENT_COST="clientcost";
+	public static final String CLIENT_COST_DEFAULT="0";
+
+	/**
+	 * The property for Java Flight Recorder events: create an OperationEvent for one in this many operations of each 
+	 * client thread, and PhaseEvents and TargetEvents for every change. Events are only recorded while a recording is 
+	 * running. No events are created by default.
+	 */
+	public static final String JFR_EVENTS="jfrevents";
+	public static final String JFR_EVENTS_DEFAULT="0";
+
 	static Measurements singleton=null;
 	
 	static Properties measurementproperties=null;
 	
+	static ThreadLocal<String> namespace=new ThreadLocal<String>()
+	{
+		protected String initialValue()
+		{
+			return "";
+		}
+	};
+	
 	public static void setProperties(Properties props)
 	{
 		measurementproperties=props;
@@ -57,7 +115,33 @@ public class Measurements
 	}
 
 	HashMap<String,OneMeasurement> data;
+	HashMap<String,Vector<ByteCounter>> bytecounters;
 	boolean histogram=true;
+	volatile String phase=null;
+	double[] keybands=null;
+	String[] keybandnames;
+	int slowestcount;
+	Vector<SlowOperations> slowest;
+	Vector<EventLog> eventlogs;
+	int clientcostsample;
+	Vector<ClientCost> clientcosts;
+	int jfrsample;
+	Vector<ThreadSummary> threadsummaries;
+	Vector<KeyBands> keybandthreads;
+	
+	/**
+	 * The key rank and popularity band of the calling thread's current operation, and the thread's latency 
+	 * histograms by band.
+	 */
+	ThreadLocal<KeyBands> keyband=new ThreadLocal<KeyBands>()
+	{
+		protected KeyBands initialValue()
+		{
+			KeyBands bands=new KeyBands(keybandnames,_props);
+			keybandthreads.add(bands);
+			return bands;
+		}
+	};
 
 	private Properties _props;
 	
@@ -67,6 +151,7 @@ public class Measurements
 	public Measurements(Properties props)
 	{
 		data=new HashMap<String,OneMeasurement>();
+		bytecounters=new HashMap<String,Vector<ByteCounter>>();
 		
 		_props=props;
 		
@@ -78,6 +163,30 @@ public class Measurements
 		{
 			histogram=false;
 		}
+		
+		slowestcount=Integer.parseInt(_props.getProperty(SLOWEST_OPERATIONS,SLOWEST_OPERATIONS_DEFAULT));
+		slowest=new Vector<SlowOperations>();
+		eventlogs=new Vector<EventLog>();
+		clientcostsample=Integer.parseInt(_props.getProperty(CLIENT_COST,CLIENT_COST_DEFAULT));
+		clientcosts=new Vector<ClientCost>();
+		jfrsample=Integer.parseInt(_props.getProperty(JFR_EVENTS,JFR_EVENTS_DEFAULT));
+		threadsummaries=new Vector<ThreadSummary>();
+		keybandthreads=new Vector<KeyBands>();
+		
+		String bands=_props.getProperty(KEY_RANK_BANDS);
+		if ( (bands!=null) && (bands.trim().length()>0) )
+		{
+			String[] fractions=bands.split(",");
+			keybands=new double[fractions.length];
+			keybandnames=new String[fractions.length+1];
+			DecimalFormat percent=new DecimalFormat("0.####");
+			for (int i=0; i<fractions.length; i++)
+			{
+				keybands[i]=Double.parseDouble(fractions[i].trim());
+				keybandnames[i]="-TOP"+percent.format(100*keybands[i])+"%";
+			}
+			keybandnames[fractions.length]="-REST";
+		}
 	}
 	
 	OneMeasurement constructOneMeasurement(String name)
@@ -92,11 +201,55 @@ public class Measurements
 		}
 	}
 
+      /**
+       * Set the measurement namespace of the calling thread, such as "tenant:". Operations measured by the calling 
+       * thread, and byte counters it creates, are reported under names that start with the namespace.
+       */
+	public static void setNamespace(String ns)
+	{
+		namespace.set(ns);
+	}
+
+      /**
+       * Return the measurement namespace of the calling thread; empty if it has none.
+       */
+	public static String getNamespace()
+	{
+		return namespace.get();
+	}
+
+      /**
+       * Return the name under which the calling thread's measurements of an operation are reported.
+       */
+	public String name(String operation)
+	{
+		String ns=namespace.get();
+		return ns.length()==0 ? operation : ns+operation;
+	}
+
+      /**
+       * Register a measurement of a type other than the configured measurementtype, such as a ratio. Later
+       * calls to measure() and reportReturnCode() with the measurement's name go to it. The name must be the 
+       * full name, as returned by name(). If a measurement with
+       * that name exists already, it is kept and returned instead.
+       */
+	public synchronized OneMeasurement register(OneMeasurement measurement)
+	{
+		OneMeasurement existing=data.get(measurement.getName());
+		if (existing!=null)
+		{
+			return existing;
+		}
+		data.put(measurement.getName(),measurement);
+		return measurement;
+	}
+
       /**
        * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured value.
        */
 	public synchronized void measure(String operation, int latency)
 	{
+		operation=name(operation);
 		if (!data.containsKey(operation))
 		{
 			synchronized(this)
@@ -119,11 +272,75 @@ public class Measurements
 		}
 	}
 
+      /**
+       * Return true if operations are also measured by key popularity band.
+       */
+	public boolean hasKeyBands()
+	{
+		return keybands!=null;
+	}
+
+      /**
+       * Set the popularity rank of the key of the calling thread's current operation: 0 for the most popular of ranks 
+       * keys, 1 for the next, and so on. A negative rank means the key has no rank, as for inserts.
+       */
+	public void setKeyRank(long rank, long ranks)
+	{
+		long[] buffer=getKeyRank();
+		buffer[0]=rank;
+		buffer[1]=ranks;
+		setKeyRank(buffer);
+	}
+
+      /**
+       * Return the calling thread's key rank buffer, for a generator to fill in {rank, ranks} before it is passed to 
+       * setKeyRank(long[]). Reusing the buffer saves allocating one per operation.
+       */
+	public long[] getKeyRank()
+	{
+		return keyband.get()._rank;
+	}
+
+      /**
+       * Set the popularity rank of the key of the calling thread's current operation from its key rank buffer, as
+       * returned by getKeyRank().
+       */
+	public void setKeyRank(long[] buffer)
+	{
+		long rank=buffer[0];
+		long ranks=buffer[1];
+		int band=-1;
+		if ( (keybands!=null) && (rank>=0) && (ranks>0) )
+		{
+			band=keybands.length;
+			for (int i=0; i<keybands.length; i++)
+			{
+				if (rank<keybands[i]*ranks)
+				{
+					band=i;
+					break;
+				}
+			}
+		}
+		buffer[2]=band;
+	}
+
+      /**
+       * Report a latency in the key popularity band of the calling thread's current operation, if it has one. Bands
+       * are always measured as histograms. Each thread measures into its own histograms, without locking, and they
+       * are merged when the measurements are exported.
+       */
+	public void measureKeyBand(String operation, int latency)
+	{
+		keyband.get().measure(namespace.get(),operation,latency);
+	}
+
       /**
        * Report a return code for a single DB operaiton.
        */
 	public void reportReturnCode(String operation, int code)
 	{
+		operation=name(operation);
 		if (!data.containsKey(operation))
 		{
 			synchronized(this)
@@ -137,6 +354,177 @@ public class Measurements
 		data.get(operation).reportReturnCode(code);
 	}
 	
+      /**
+       * Set the name of the workload phase that is now active, or null if the workload has no phases. 
+       * Time series measurements are tagged with the phase that was active when each unit started.
+       */
+	public void setPhase(String name)
+	{
+		phase=name;
+		if (jfrsample>0)
+		{
+			PhaseEvent.emit(name);
+		}
+	}
+
+      /**
+       * Return the number of operations per Java Flight Recorder OperationEvent, or 0 if no events are created.
+       */
+	public int getJfrSample()
+	{
+		return jfrsample;
+	}
+
+      /**
+       * Return the name of the active workload phase, or null if the workload has no phases.
+       */
+	public String getPhase()
+	{
+		return phase;
+	}
+
+      /**
+       * Create a byte counter for one client thread and one operation type. The counter is owned by 
+       * the calling thread; the bytes of all counters are summed when reporting.
+       */
+	public synchronized ByteCounter newByteCounter(String operation)
+	{
+		operation=name(operation);
+		Vector<ByteCounter> counters=bytecounters.get(operation);
+		if (counters==null)
+		{
+			counters=new Vector<ByteCounter>();
+			bytecounters.put(operation,counters);
+		}
+		ByteCounter counter=new ByteCounter();
+		counters.add(counter);
+		return counter;
+	}
+
+      /**
+       * Create the record of the slowest operations of one client thread, or return null if the slowest operations 
+       * are not reported. The record is owned by the calling thread.
+       */
+	public synchronized SlowOperations newSlowOperations()
+	{
+		if (slowestcount<=0)
+		{
+			return null;
+		}
+		SlowOperations ops=new SlowOperations(slowestcount,getNamespace());
+		slowest.add(ops);
+		return ops;
+	}
+
+      /**
+       * Create the raw event log of one client thread, or return null if there is no event log or it cannot be
+       * created. The log is owned by the calling thread.
+       */
+	public synchronized EventLog newEventLog()
+	{
+		String prefix=_props.getProperty(EVENT_LOG);
+		if (prefix==null)
+		{
+			return null;
+		}
+		long segmentsize=Long.parseLong(_props.getProperty(EVENT_LOG_SEGMENT_SIZE,EVENT_LOG_SEGMENT_SIZE_DEFAULT));
+		int segments=Integer.parseInt(_props.getProperty(EVENT_LOG_SEGMENTS,EVENT_LOG_SEGMENTS_DEFAULT));
+		try
+		{
+			EventLog log=new EventLog(prefix,eventlogs.size(),segmentsize,segments);
+			eventlogs.add(log);
+			return log;
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not create event log "+prefix+": "+e.getMessage());
+			return null;
+		}
+	}
+
+      /**
+       * Create the record of the CPU time and allocated bytes of one client thread calling a DB binding, or return 
+       * null if they are not measured. The record is owned by the calling thread.
+       */
+	public synchronized ClientCost newClientCost(String binding)
+	{
+		if (clientcostsample<=0)
+		{
+			return null;
+		}
+		java.lang.management.ThreadMXBean threads=java.lang.management.ManagementFactory.getThreadMXBean();
+		if ( (!threads.isCurrentThreadCpuTimeSupported()) || (!(threads instanceof com.sun.management.ThreadMXBean)) )
+		{
+			System.err.println("This JVM cannot measure thread CPU time and allocated bytes, not measuring the client's cost");
+			clientcostsample=0;
+			return null;
+		}
+		threads.setThreadCpuTimeEnabled(true);
+		((com.sun.management.ThreadMXBean)threads).setThreadAllocatedMemoryEnabled(true);
+		ClientCost cost=new ClientCost(name("CLIENT-COST-"+binding),clientcostsample);
+		clientcosts.add(cost);
+		return cost;
+	}
+
+      /**
+       * Create the summary of the operations of the calling client thread. The summary is owned by the calling thread.
+       */
+	public synchronized ThreadSummary newThreadSummary()
+	{
+		ThreadSummary summary=new ThreadSummary(Thread.currentThread().getName());
+		threadsummaries.add(summary);
+		return summary;
+	}
+
+      /**
+       * Return true if any thread counts bytes for this operation type. Here and below, operation is the full name, including any namespace.
+       */
+	public synchronized boolean hasBytes(String operation)
+	{
+		return bytecounters.containsKey(operation);
+	}
+
+      /**
+       * Return the bytes sent plus received so far for one operation type, summed over all threads.
+       */
+	public synchronized long getBytes(String operation)
+	{
+		long ret=0;
+		Vector<ByteCounter> counters=bytecounters.get(operation);
+		if (counters!=null)
+		{
+			for (ByteCounter c : counters)
+			{
+				ret+=c.getSent()+c.getReceived();
+			}
+		}
+		return ret;
+	}
+
+      /**
+       * Return the bytes sent plus received so far for all operation types.
+       */
+	public synchronized long getTotalBytes()
+	{
+		return getTotalBytes("");
+	}
+
+      /**
+       * Return the bytes sent plus received so far for all operation types in a namespace.
+       */
+	public synchronized long getTotalBytes(String ns)
+	{
+		long ret=0;
+		for (String operation : bytecounters.keySet())
+		{
+			if (operation.startsWith(ns))
+			{
+				ret+=getBytes(operation);
+			}
+		}
+		return ret;
+	}
+	
   /**
    * Export the current measurements to a suitable format.
    * 
@@ -149,6 +537,204 @@ public class Measurements
     {
       measurement.exportMeasurements(exporter);
     }
+
+    for (String operation : bytecounters.keySet())
+    {
+      long sent=0;
+      long received=0;
+      for (ByteCounter c : bytecounters.get(operation))
+      {
+        sent+=c.getSent();
+        received+=c.getReceived();
+      }
+      if ( (sent>0) || (received>0) )
+      {
+        exporter.write(operation, "BytesSent", sent);
+        exporter.write(operation, "BytesReceived", received);
+      }
+    }
+
+    exportKeyBands(exporter);
+
+    exportSlowestOperations(exporter);
+
+    exportClientCosts(exporter);
+
+    exportThreadSummaries(exporter);
+
+    if (eventlogs.size()>0)
+    {
+      long events=0;
+      long segments=0;
+      long appendnanos=0;
+      long timedappends=0;
+      for (EventLog log : eventlogs)
+      {
+        events+=log.getEvents();
+        segments+=log.getSegments();
+        appendnanos+=log.getAppendNanos();
+        timedappends+=log.getTimedAppends();
+      }
+      exporter.write("EVENTLOG", "Events", events);
+      exporter.write("EVENTLOG", "Segments", segments);
+      exporter.write("EVENTLOG", "AverageAppendTime(ns)", timedappends==0 ? 0 : ((double)appendnanos)/((double)timedappends));
+    }
+  }
+	
+  /**
+   * Export the latency histograms by key popularity band, merged over the client threads.
+   */
+  void exportKeyBands(MeasurementsExporter exporter) throws IOException
+  {
+    TreeMap<String,OneMeasurementHistogram> merged=new TreeMap<String,OneMeasurementHistogram>();
+    for (KeyBands bands : keybandthreads)
+    {
+      for (OneMeasurementHistogram histogram : bands.getHistograms())
+      {
+        OneMeasurementHistogram total=merged.get(histogram.getName());
+        if (total==null)
+        {
+          total=new OneMeasurementHistogram(histogram.getName(),_props);
+          merged.put(histogram.getName(),total);
+        }
+        total.merge(histogram);
+      }
+    }
+    for (OneMeasurementHistogram histogram : merged.values())
+    {
+      histogram.exportMeasurements(exporter);
+    }
+  }
+
+  /**
+   * Export the CPU time and allocated bytes per operation of the client threads, summed over the threads calling each binding.
+   */
+  void exportClientCosts(MeasurementsExporter exporter) throws IOException
+  {
+    TreeMap<String,Vector<ClientCost>> bindings=new TreeMap<String,Vector<ClientCost>>();
+    for (ClientCost cost : clientcosts)
+    {
+      Vector<ClientCost> costs=bindings.get(cost.getName());
+      if (costs==null)
+      {
+        costs=new Vector<ClientCost>();
+        bindings.put(cost.getName(),costs);
+      }
+      costs.add(cost);
+    }
+
+    for (String name : bindings.keySet())
+    {
+      long operations=0;
+      long cpu=0;
+      long allocated=0;
+      long[] opsamples=new long[EventLog.OPERATION_NAMES.length];
+      long[] opcpu=new long[opsamples.length];
+      long[] opallocated=new long[opsamples.length];
+      for (ClientCost cost : bindings.get(name))
+      {
+        operations+=cost._operations;
+        cpu+=cost._totalcpu;
+        allocated+=cost._totalallocated;
+        for (int i=0; i<opsamples.length; i++)
+        {
+          opsamples[i]+=cost._samples[i];
+          opcpu[i]+=cost._cpu[i];
+          opallocated[i]+=cost._allocated[i];
+        }
+      }
+
+      //the whole thread, including the workload's work between operations
+      exporter.write(name, "Operations", operations);
+      exporter.write(name, "CPU(us/op)", operations==0 ? 0 : (cpu/1000.0)/operations);
+      exporter.write(name, "Allocated(bytes/op)", operations==0 ? 0 : ((double)allocated)/operations);
+
+      //the sampled calls into the binding
+      for (int i=1; i<opsamples.length; i++)
+      {
+        if (opsamples[i]>0)
+        {
+          String op=EventLog.OPERATION_NAMES[i];
+          exporter.write(name, op+"-Samples", opsamples[i]);
+          exporter.write(name, op+"-CPU(us/op)", (opcpu[i]/1000.0)/opsamples[i]);
+          exporter.write(name, op+"-Allocated(bytes/op)", ((double)opallocated[i])/opsamples[i]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Export the summary of each client thread, and how much the threads differ.
+   */
+  void exportThreadSummaries(MeasurementsExporter exporter) throws IOException
+  {
+    if (threadsummaries.size()==0)
+    {
+      return;
+    }
+
+    double[] throughputs=new double[threadsummaries.size()];
+    double[] latencies=new double[threadsummaries.size()];
+    for (int i=0; i<threadsummaries.size(); i++)
+    {
+      ThreadSummary summary=threadsummaries.get(i);
+      throughputs[i]=summary.getThroughput();
+      latencies[i]=summary.getAverageLatency();
+    }
+
+    double[] throughput=ThreadSummary.spread(throughputs);
+    double[] latency=ThreadSummary.spread(latencies);
+    exporter.write("THREADS", "Threads", threadsummaries.size());
+    exporter.write("THREADS", "MinThroughput(ops/sec)", throughput[0]);
+    exporter.write("THREADS", "MaxThroughput(ops/sec)", throughput[1]);
+    exporter.write("THREADS", "StdDevThroughput(ops/sec)", throughput[2]);
+    exporter.write("THREADS", "MinAverageLatency(ms)", latency[0]);
+    exporter.write("THREADS", "MaxAverageLatency(ms)", latency[1]);
+    exporter.write("THREADS", "StdDevAverageLatency(ms)", latency[2]);
+
+    for (ThreadSummary summary : threadsummaries)
+    {
+      String name="THREAD "+summary.getThread();
+      exporter.write(name, "Operations", summary.getOperations());
+      exporter.write(name, "Throughput(ops/sec)", summary.getThroughput());
+      exporter.write(name, "AverageLatency(ms)", summary.getAverageLatency());
+      exporter.write(name, "MaxLatency(ms)", summary.getMaxLatency());
+    }
+  }
+
+  /**
+   * Export the slowest operations of all threads, slowest first.
+   */
+  void exportSlowestOperations(MeasurementsExporter exporter) throws IOException
+  {
+    //each entry is {latency, start, index of the thread's record, index in the record}
+    Vector<long[]> ops=new Vector<long[]>();
+    for (int t=0; t<slowest.size(); t++)
+    {
+      SlowOperations s=slowest.get(t);
+      for (int i=0; i<s.size(); i++)
+      {
+        ops.add(new long[] {s.getLatency(i),s.getStart(i),t,i});
+      }
+    }
+    Collections.sort(ops,new Comparator<long[]>()
+    {
+      public int compare(long[] a, long[] b)
+      {
+        if (a[0]!=b[0])
+        {
+          return a[0]>b[0] ? -1 : 1;
+        }
+        return a[1]<b[1] ? -1 : (a[1]>b[1] ? 1 : 0);
+      }
+    });
+
+    SimpleDateFormat format=new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+    for (int i=0; (i<slowestcount) && (i<ops.size()); i++)
+    {
+      long[] op=ops.get(i);
+      exporter.write("SLOWEST", Integer.toString(i+1), slowest.get((int)op[2]).describe((int)op[3],format));
+    }
   }
 	
       /**
@@ -85,6 +85,14 @@ public class OneMeasurementHistogram extends OneMeasurement
 	 * @see com.yahoo.ycsb.OneMeasurement#measure(int)
 	 */
 	public synchronized void measure(int latency)
+	{
+		record(latency);
+	}
+
+	/**
+	 * Measure without locking, for a histogram that only one thread measures into.
+	 */
+	void record(int latency)
 	{
 		if (latency>=_buckets)
 		{
@@ -110,6 +118,39 @@ public class OneMeasurementHistogram extends OneMeasurement
 		}
 	}
 
+	/**
+	 * Add the measurements of another histogram with the same number of buckets to this one.
+	 */
+	synchronized void merge(OneMeasurementHistogram other)
+	{
+		for (int i=0; i<_buckets; i++)
+		{
+			histogram[i]+=other.histogram[i];
+		}
+		histogramoverflow+=other.histogramoverflow;
+		operations+=other.operations;
+		totallatency+=other.totallatency;
+		windowoperations+=other.windowoperations;
+		windowtotallatency+=other.windowtotallatency;
+		if ( (other.min>=0) && ( (min<0) || (other.min<min) ) )
+		{
+			min=other.min;
+		}
+		if (other.max>max)
+		{
+			max=other.max;
+		}
+		for (Integer I : other.returncodes.keySet())
+		{
+			int[] val=returncodes.get(I);
+			if (val==null)
+			{
+				val=new int[1];
+				returncodes.put(I,val);
+			}
+			val[0]+=other.returncodes.get(I)[0];
+		}
+	}
 
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException
@@ -0,0 +1,358 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Vector;
+
+import com.yahoo.ycsb.SplitMixRandom;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Samples the keys a workload chooses, to check that the request distribution is the one intended. Each thread 
+ * feeds its keys into sketches of its own: a Count-Min sketch of the key frequencies, a list of the most frequent
+ * keys seen so far, and a HyperLogLog count of the distinct keys. The sketches of all threads are merged when the
+ * measurements are exported, to report the hottest keys, the zipfian constant that best fits their frequencies,
+ * and the fraction of the keyspace that was touched.
+ * 
+ * Frequencies are overestimated by at most about e/WIDTH of all samples (with high probability), so the skew is only 
+ * fitted to keys that are much more frequent than that, and the distinct count is accurate to about 1.6%.
+ */
+public class OneMeasurementKeyDistribution extends OneMeasurement
+{
+	/**
+	 * The number of rows of the Count-Min sketch, each indexed by a different slice of the key hash.
+	 */
+	static final int DEPTH=4;
+	
+	static final int WIDTH_BITS=14;
+	
+	static final int WIDTH=1<<WIDTH_BITS;
+	
+	/**
+	 * The number of HyperLogLog registers is 2^REGISTER_BITS, indexed by the top bits of the key hash.
+	 */
+	static final int REGISTER_BITS=12;
+	
+	static final int REGISTERS=1<<REGISTER_BITS;
+	
+	/**
+	 * The sketches of one thread.
+	 */
+	static class Sketch
+	{
+		long samples;
+		int[] counts=new int[DEPTH*WIDTH];
+		byte[] registers=new byte[REGISTERS];
+		
+		//the candidates for the most frequent keys, with their estimated frequencies
+		long[] topkeys;
+		long[] topcounts;
+		int topsize;
+		long topmin;
+		
+		Sketch(int candidates)
+		{
+			topkeys=new long[candidates];
+			topcounts=new long[candidates];
+		}
+		
+		void add(long keynum)
+		{
+			samples++;
+			long hash=SplitMixRandom.mix(keynum);
+			
+			int estimate=Integer.MAX_VALUE;
+			long bits=hash;
+			for (int row=0; row<DEPTH; row++)
+			{
+				int index=row*WIDTH+(int)(bits&(WIDTH-1));
+				int count=++counts[index];
+				if (count<estimate)
+				{
+					estimate=count;
+				}
+				bits>>>=WIDTH_BITS;
+			}
+			
+			int register=(int)(hash>>>(64-REGISTER_BITS));
+			byte rank=(byte)(Long.numberOfLeadingZeros((hash<<REGISTER_BITS)|(1L<<(REGISTER_BITS-1)))+1);
+			if (rank>registers[register])
+			{
+				registers[register]=rank;
+			}
+			
+			if ( (topsize==topkeys.length) && (estimate<=topmin) )
+			{
+				return;
+			}
+			updateTop(keynum,estimate);
+		}
+		
+		/**
+		 * Record the estimated frequency of a key that is frequent enough to be a candidate. Rarely called, except 
+		 * for keys that are candidates already.
+		 */
+		void updateTop(long keynum, long estimate)
+		{
+			int slot=-1;
+			for (int i=0; i<topsize; i++)
+			{
+				if (topkeys[i]==keynum)
+				{
+					slot=i;
+					break;
+				}
+			}
+			if (slot<0)
+			{
+				if (topsize<topkeys.length)
+				{
+					slot=topsize++;
+				}
+				else
+				{
+					//replace the least frequent candidate
+					slot=0;
+					for (int i=1; i<topsize; i++)
+					{
+						if (topcounts[i]<topcounts[slot])
+						{
+							slot=i;
+						}
+					}
+				}
+				topkeys[slot]=keynum;
+			}
+			topcounts[slot]=estimate;
+			
+			if (topsize==topkeys.length)
+			{
+				long min=Long.MAX_VALUE;
+				for (int i=0; i<topsize; i++)
+				{
+					min=Math.min(min,topcounts[i]);
+				}
+				topmin=min;
+			}
+		}
+	}
+	
+	final int topk;
+	final int candidates;
+	volatile long keyspace;
+	
+	Vector<Sketch> sketches=new Vector<Sketch>();
+	
+	ThreadLocal<Sketch> sketch=new ThreadLocal<Sketch>()
+	{
+		protected Sketch initialValue()
+		{
+			Sketch s=new Sketch(candidates);
+			sketches.add(s);
+			return s;
+		}
+	};
+	
+	/**
+	 * @param topk The number of hottest keys to report.
+	 * @param keyspace The number of keys that could be chosen, for the coverage.
+	 */
+	public OneMeasurementKeyDistribution(String name, int topk, long keyspace)
+	{
+		super(name);
+		this.topk=topk;
+		this.keyspace=keyspace;
+		//track more candidates than are reported, so that keys near the cutoff are ranked correctly, and to fit the skew
+		candidates=Math.max(4*topk,64);
+	}
+	
+	/**
+	 * Record that a key was chosen.
+	 */
+	public void sample(long keynum)
+	{
+		sketch.get().add(keynum);
+	}
+	
+	/**
+	 * Set the number of keys that could be chosen, such as the number of live keys at the end of the run.
+	 */
+	public void setKeyspace(long keyspace)
+	{
+		this.keyspace=keyspace;
+	}
+	
+	public void reportReturnCode(int code)
+	{
+	}
+	
+	/**
+	 * Record a chosen key, for keys that fit in an int. Use sample() for others.
+	 */
+	public void measure(int keynum)
+	{
+		sample(keynum);
+	}
+	
+	public String getSummary()
+	{
+		return "";
+	}
+	
+	@Override
+	public void exportMeasurements(MeasurementsExporter exporter) throws IOException
+	{
+		//merge the sketches of all threads
+		long samples=0;
+		int[] counts=new int[DEPTH*WIDTH];
+		byte[] registers=new byte[REGISTERS];
+		HashSet<Long> candidatekeys=new HashSet<Long>();
+		synchronized (sketches)
+		{
+			for (Sketch s : sketches)
+			{
+				samples+=s.samples;
+				for (int i=0; i<counts.length; i++)
+				{
+					counts[i]+=s.counts[i];
+				}
+				for (int i=0; i<REGISTERS; i++)
+				{
+					registers[i]=(byte)Math.max(registers[i],s.registers[i]);
+				}
+				for (int i=0; i<s.topsize; i++)
+				{
+					candidatekeys.add(s.topkeys[i]);
+				}
+			}
+		}
+		
+		exporter.write(getName(),"Samples",samples);
+		if (samples==0)
+		{
+			return;
+		}
+		
+		//rank the candidates by their frequency in the merged sketch
+		long[][] top=new long[candidatekeys.size()][];
+		int n=0;
+		for (long keynum : candidatekeys)
+		{
+			top[n++]=new long[] {estimate(counts,keynum),keynum};
+		}
+		Arrays.sort(top,new Comparator<long[]>()
+		{
+			public int compare(long[] a, long[] b)
+			{
+				return a[0]!=b[0] ? (a[0]>b[0] ? -1 : 1) : (a[1]<b[1] ? -1 : (a[1]>b[1] ? 1 : 0));
+			}
+		});
+		
+		long distinct=distinct(registers);
+		exporter.write(getName(),"DistinctKeys",distinct);
+		if (keyspace>0)
+		{
+			exporter.write(getName(),"Coverage",Math.min(1.0,((double)distinct)/((double)keyspace)));
+		}
+		
+		//only fit the keys whose frequencies are well above the collisions every counter of the sketch collects
+		int fitranks=0;
+		while ( (fitranks<top.length) && (top[fitranks][0]>10*samples/WIDTH) )
+		{
+			fitranks++;
+		}
+		if (fitranks>=2)
+		{
+			exporter.write(getName(),"FittedZipfianConstant",fitZipfianConstant(top,fitranks));
+			exporter.write(getName(),"FitRanks",fitranks);
+		}
+		
+		for (int i=0; (i<topk) && (i<top.length); i++)
+		{
+			exporter.write(getName(),"Top"+(i+1),"key "+top[i][1]+", "+top[i][0]+" samples ("+String.format("%.3f",100.0*top[i][0]/samples)+"%)");
+		}
+	}
+	
+	static long estimate(int[] counts, long keynum)
+	{
+		long hash=SplitMixRandom.mix(keynum);
+		long estimate=Long.MAX_VALUE;
+		for (int row=0; row<DEPTH; row++)
+		{
+			estimate=Math.min(estimate,counts[row*WIDTH+(int)(hash&(WIDTH-1))]);
+			hash>>>=WIDTH_BITS;
+		}
+		return estimate;
+	}
+	
+	/**
+	 * The HyperLogLog estimate of the number of distinct keys, with linear counting for small counts.
+	 */
+	static long distinct(byte[] registers)
+	{
+		double sum=0;
+		int zeros=0;
+		for (byte r : registers)
+		{
+			sum+=Math.pow(2,-r);
+			if (r==0)
+			{
+				zeros++;
+			}
+		}
+		double m=REGISTERS;
+		double estimate=(0.7213/(1+1.079/m))*m*m/sum;
+		if ( (estimate<=2.5*m) && (zeros>0) )
+		{
+			estimate=m*Math.log(m/zeros);
+		}
+		return Math.round(estimate);
+	}
+	
+	/**
+	 * Fit frequency = c / rank^theta to the hottest keys by least squares on the logarithms, and return theta.
+	 */
+	static double fitZipfianConstant(long[][] top, int ranks)
+	{
+		double sx=0, sy=0, sxx=0, sxy=0;
+		int n=0;
+		for (int i=0; i<ranks; i++)
+		{
+			if (top[i][0]<=0)
+			{
+				break;
+			}
+			double x=Math.log(i+1);
+			double y=Math.log(top[i][0]);
+			sx+=x;
+			sy+=y;
+			sxx+=x*x;
+			sxy+=x*y;
+			n++;
+		}
+		if (n<2)
+		{
+			return 0;
+		}
+		return -(n*sxy-sx*sy)/(n*sxx-sx*sx);
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Count how often an event happens out of a number of tries, such as cache hits out of cache lookups.
+ * Each call to measure() is one try, and a nonzero value counts as a hit.
+ */
+public class OneMeasurementRatio extends OneMeasurement
+{
+	long tries;
+	long hits;
+	
+	//keep a windowed version of these stats for printing status
+	long windowtries;
+	long windowhits;
+
+	public OneMeasurementRatio(String name)
+	{
+		super(name);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.yahoo.ycsb.OneMeasurement#reportReturnCode(int)
+	 */
+	public void reportReturnCode(int code)
+	{
+	}
+
+	/* (non-Javadoc)
+	 * @see com.yahoo.ycsb.OneMeasurement#measure(int)
+	 */
+	public synchronized void measure(int hit)
+	{
+		tries++;
+		windowtries++;
+		if (hit!=0)
+		{
+			hits++;
+			windowhits++;
+		}
+	}
+
+	@Override
+	public void exportMeasurements(MeasurementsExporter exporter) throws IOException
+	{
+		exporter.write(getName(), "Tries", tries);
+		exporter.write(getName(), "Hits", hits);
+		exporter.write(getName(), "Ratio", tries==0 ? 0 : ((double)hits)/((double)tries));
+	}
+
+	@Override
+	public synchronized String getSummary() {
+		if (windowtries==0)
+		{
+			return "";
+		}
+		DecimalFormat d = new DecimalFormat("#.###");
+		double report=((double)windowhits)/((double)windowtries);
+		windowtries=0;
+		windowhits=0;
+		return "["+getName()+" Ratio="+d.format(report)+"]";
+	}
+}
@@ -30,13 +30,19 @@ class SeriesUnit
 	/**
 	 * @param time
 	 * @param average
+	 * @param throughput
+	 * @param phase
 	 */
-	public SeriesUnit(long time, double average) {
+	public SeriesUnit(long time, double average, double throughput, String phase) {
 		this.time = time;
 		this.average = average;
+		this.throughput = throughput;
+		this.phase = phase;
 	}
 	public long time;
 	public double average; 
+	public double throughput;
+	public String phase;
 }
 
 /**
@@ -67,6 +73,13 @@ public class OneMeasurementTimeSeries extends OneMeasurement
 	
 	int min=-1;
 	int max=-1;
+	
+	//bytes moved by this operation type when the current unit started, for MB/sec per unit
+	long unitstartbytes=0;
+	long unitstarttime=-1;
+	
+	//workload phase that was active when the current unit started
+	String unitphase=null;
 
 	private HashMap<Integer, int[]> returncodes;
 	
@@ -90,10 +103,27 @@ public class OneMeasurementTimeSeries extends OneMeasurement
 		
 		long unit=((now-start)/_granularity)*_granularity;
 		
+		if (unitstarttime<0)
+		{
+			unitstarttime=now;
+			unitphase=Measurements.getMeasurements().getPhase();
+		}
+		
 		if ( (unit>currentunit) || (forceend) )
 		{
 			double avg=((double)sum)/((double)count);
-			_measurements.add(new SeriesUnit(currentunit,avg));
+			
+			long bytes=Measurements.getMeasurements().getBytes(getName());
+			double throughput=0;
+			if (now>unitstarttime)
+			{
+				throughput=((bytes-unitstartbytes)/Measurements.BYTES_PER_MB)/((now-unitstarttime)/1000.0);
+			}
+			_measurements.add(new SeriesUnit(currentunit,avg,throughput,unitphase));
+			
+			unitstartbytes=bytes;
+			unitstarttime=now;
+			unitphase=Measurements.getMeasurements().getPhase();
 			
 			currentunit=unit;
 			
@@ -144,9 +174,18 @@ public class OneMeasurementTimeSeries extends OneMeasurement
       exporter.write(getName(), "Return="+I, val[0]);
     }     
 
+    boolean hasbytes=Measurements.getMeasurements().hasBytes(getName());
     for (SeriesUnit unit : _measurements)
     {
       exporter.write(getName(), Long.toString(unit.time), unit.average);
+      if (hasbytes)
+      {
+        exporter.write(getName(), Long.toString(unit.time)+"(MB/sec)", unit.throughput);
+      }
+      if (unit.phase!=null)
+      {
+        exporter.write(getName(), Long.toString(unit.time)+"(phase)", unit.phase);
+      }
     }
   }
 	
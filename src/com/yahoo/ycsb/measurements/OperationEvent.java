@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for one database operation, so that the operations appear on the same timeline as
+ * the rest of a recording, such as garbage collections and the events of an embedded database. The duration of the 
+ * event is the latency of the operation. Events are only created with the jfrevents property, and only recorded 
+ * when a recording is running.
+ */
+@Name("com.yahoo.ycsb.Operation")
+@Label("YCSB Operation")
+@Category("YCSB")
+@Description("A database operation issued by a YCSB client thread")
+@StackTrace(false)
+public class OperationEvent extends jdk.jfr.Event
+{
+	@Label("Operation")
+	String operation;
+
+	@Label("Table")
+	String table;
+
+	@Label("Key Hash")
+	@Description("The hash code of the key, or of the start key of a scan")
+	int keyhash;
+
+	@Label("Return Code")
+	int returncode;
+
+	/**
+	 * Start the event of an operation that is about to be issued, or return null if the event is not recorded.
+	 */
+	public static OperationEvent start()
+	{
+		OperationEvent event=new OperationEvent();
+		if (!event.isEnabled())
+		{
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * End the event of a completed operation and record it.
+	 */
+	public void commit(String operation, String table, String key, int returncode)
+	{
+		end();
+		if (shouldCommit())
+		{
+			this.operation=operation;
+			this.table=table;
+			this.keyhash=key.hashCode();
+			this.returncode=returncode;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,298 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.util.Properties;
+import java.util.Vector;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Records the pauses of the client's own JVM, so that the latency they add can be told apart from the database's: 
+ * the garbage collection pauses reported by the GarbageCollectorMXBeans, and the hiccups seen by a thread that 
+ * repeatedly sleeps for a short time and measures how late it wakes up, which also catches safepoints and 
+ * scheduling stalls. Pauses are kept per window of timeseries.granularity milliseconds, and windows in which
+ * the client paused for longer than pausethreshold milliseconds are flagged, as are status lines.
+ */
+public class PauseMonitor extends OneMeasurement implements NotificationListener
+{
+	/**
+	 * The property that turns the monitor on.
+	 */
+	public static final String PAUSE_MONITOR="pausemonitor";
+	public static final String PAUSE_MONITOR_DEFAULT="false";
+
+	/**
+	 * The property for the total garbage collection pause, or the longest hiccup, in milliseconds above which a window is flagged.
+	 */
+	public static final String PAUSE_THRESHOLD="pausethreshold";
+	public static final String PAUSE_THRESHOLD_DEFAULT="50";
+
+	/**
+	 * The property for how long the hiccup meter sleeps between measurements, in milliseconds.
+	 */
+	public static final String HICCUP_RESOLUTION="hiccupresolution";
+	public static final String HICCUP_RESOLUTION_DEFAULT="1";
+
+	public static final String NAME="CLIENT-PAUSES";
+
+	/**
+	 * The pauses of one window.
+	 */
+	static class Window
+	{
+		long time;
+		int gcs;
+		double gcpause;
+		double maxhiccup;
+	}
+
+	final int _granularity;
+	final double _threshold;
+	final long _resolution;
+	final long _start;
+	final long _jvmstart;
+
+	Vector<Window> _windows=new Vector<Window>();
+	Vector<NotificationEmitter> _emitters=new Vector<NotificationEmitter>();
+	Thread _hiccupmeter;
+	volatile boolean _stopped=false;
+
+	int _gcs=0;
+	double _gcpause=0;
+	double _maxgcpause=0;
+	double _maxhiccup=0;
+
+	//keep a windowed version of these stats for printing status
+	double _statusgcpause=0;
+	double _statusmaxhiccup=0;
+
+	/**
+	 * Start monitoring the client's pauses, if the pausemonitor property is set, and register the monitor with the 
+	 * measurements. Returns null if the monitor is off.
+	 */
+	public static PauseMonitor start(Properties props)
+	{
+		if (!Boolean.parseBoolean(props.getProperty(PAUSE_MONITOR,PAUSE_MONITOR_DEFAULT)))
+		{
+			return null;
+		}
+		PauseMonitor monitor=new PauseMonitor(props);
+		Measurements.getMeasurements().register(monitor);
+		monitor.start();
+		return monitor;
+	}
+
+	PauseMonitor(Properties props)
+	{
+		super(NAME);
+		_granularity=Integer.parseInt(props.getProperty(OneMeasurementTimeSeries.GRANULARITY,OneMeasurementTimeSeries.GRANULARITY_DEFAULT));
+		_threshold=Double.parseDouble(props.getProperty(PAUSE_THRESHOLD,PAUSE_THRESHOLD_DEFAULT));
+		_resolution=Long.parseLong(props.getProperty(HICCUP_RESOLUTION,HICCUP_RESOLUTION_DEFAULT));
+		_start=System.currentTimeMillis();
+		_jvmstart=ManagementFactory.getRuntimeMXBean().getStartTime();
+	}
+
+	void start()
+	{
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			if (gc instanceof NotificationEmitter)
+			{
+				NotificationEmitter emitter=(NotificationEmitter)gc;
+				emitter.addNotificationListener(this,null,null);
+				_emitters.add(emitter);
+			}
+		}
+
+		_hiccupmeter=new Thread("hiccup-meter")
+		{
+			public void run()
+			{
+				long expected=_resolution*1000000L;
+				while (!_stopped)
+				{
+					long st=System.nanoTime();
+					try
+					{
+						sleep(_resolution);
+					}
+					catch (InterruptedException e)
+					{
+						return;
+					}
+					long late=System.nanoTime()-st-expected;
+					if (late>0)
+					{
+						hiccup(System.currentTimeMillis(),late/1000000.0);
+					}
+				}
+			}
+		};
+		_hiccupmeter.setDaemon(true);
+		_hiccupmeter.start();
+	}
+
+	/**
+	 * Stop monitoring. The pauses recorded so far are kept for export.
+	 */
+	public void stop()
+	{
+		_stopped=true;
+		_hiccupmeter.interrupt();
+		for (NotificationEmitter emitter : _emitters)
+		{
+			try
+			{
+				emitter.removeNotificationListener(this);
+			}
+			catch (javax.management.ListenerNotFoundException e)
+			{
+				//already removed
+			}
+		}
+	}
+
+	/**
+	 * Return the window containing a time, creating it and any missing windows before it.
+	 */
+	Window window(long time)
+	{
+		long unit=(Math.max(0,time-_start)/_granularity)*_granularity;
+		Window w=_windows.isEmpty() ? null : _windows.lastElement();
+		while ( (w==null) || (w.time<unit) )
+		{
+			w=new Window();
+			w.time=_windows.isEmpty() ? 0 : _windows.lastElement().time+_granularity;
+			_windows.add(w);
+		}
+		//a garbage collection notification can arrive after later hiccups were recorded
+		for (int i=_windows.size()-1; w.time>unit; i--)
+		{
+			w=_windows.get(i-1);
+		}
+		return w;
+	}
+
+	synchronized void hiccup(long time, double ms)
+	{
+		Window w=window(time);
+		w.maxhiccup=Math.max(w.maxhiccup,ms);
+		_maxhiccup=Math.max(_maxhiccup,ms);
+		_statusmaxhiccup=Math.max(_statusmaxhiccup,ms);
+	}
+
+	synchronized void gcPause(long time, double ms)
+	{
+		Window w=window(time);
+		w.gcs++;
+		w.gcpause+=ms;
+		_gcs++;
+		_gcpause+=ms;
+		_maxgcpause=Math.max(_maxgcpause,ms);
+		_statusgcpause+=ms;
+	}
+
+	/**
+	 * Receive a garbage collection notification.
+	 */
+	public void handleNotification(Notification notification, Object handback)
+	{
+		if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+		{
+			return;
+		}
+		GarbageCollectionNotificationInfo info=GarbageCollectionNotificationInfo.from((CompositeData)notification.getUserData());
+		//concurrent collectors also report whole collection cycles, which mostly run alongside the application
+		if (info.getGcAction().equals("end of GC cycle"))
+		{
+			return;
+		}
+		gcPause(_jvmstart+info.getGcInfo().getStartTime(),info.getGcInfo().getDuration());
+	}
+
+	boolean flagged(Window w)
+	{
+		return (w.gcpause>_threshold) || (w.maxhiccup>_threshold);
+	}
+
+	@Override
+	public void measure(int latency)
+	{
+		//pauses are recorded by the monitor itself
+	}
+
+	@Override
+	public void reportReturnCode(int code)
+	{
+	}
+
+	@Override
+	public synchronized String getSummary()
+	{
+		DecimalFormat d=new DecimalFormat("#.##");
+		String ret="["+getName()+" GCPause(ms)="+d.format(_statusgcpause)+" MaxHiccup(ms)="+d.format(_statusmaxhiccup);
+		if ( (_statusgcpause>_threshold) || (_statusmaxhiccup>_threshold) )
+		{
+			ret+=" OVER-THRESHOLD";
+		}
+		_statusgcpause=0;
+		_statusmaxhiccup=0;
+		return ret+"]";
+	}
+
+	@Override
+	public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException
+	{
+		int flagged=0;
+		for (Window w : _windows)
+		{
+			if (flagged(w))
+			{
+				flagged++;
+			}
+		}
+
+		exporter.write(getName(), "GCs", _gcs);
+		exporter.write(getName(), "TotalGCPause(ms)", _gcpause);
+		exporter.write(getName(), "MaxGCPause(ms)", _maxgcpause);
+		exporter.write(getName(), "MaxHiccup(ms)", _maxhiccup);
+		exporter.write(getName(), "Threshold(ms)", _threshold);
+		exporter.write(getName(), "FlaggedWindows", flagged);
+
+		for (Window w : _windows)
+		{
+			exporter.write(getName(), Long.toString(w.time)+"(GCPause(ms))", w.gcpause);
+			exporter.write(getName(), Long.toString(w.time)+"(MaxHiccup(ms))", w.maxhiccup);
+			if (flagged(w))
+			{
+				exporter.write(getName(), Long.toString(w.time)+"(flagged)", "OVER-THRESHOLD");
+			}
+		}
+	}
+}
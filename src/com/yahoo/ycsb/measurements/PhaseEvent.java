@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for the start of a workload phase.
+ */
+@Name("com.yahoo.ycsb.Phase")
+@Label("YCSB Phase")
+@Category("YCSB")
+@Description("A workload phase started")
+@StackTrace(false)
+public class PhaseEvent extends jdk.jfr.Event
+{
+	@Label("Phase")
+	@Description("The name of the phase, or null if the phases have not started")
+	String phase;
+
+	public static void emit(String phase)
+	{
+		PhaseEvent event=new PhaseEvent();
+		if (event.isEnabled())
+		{
+			event.phase=phase;
+			event.commit();
+		}
+	}
+}
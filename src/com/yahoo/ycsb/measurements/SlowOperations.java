@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Keeps the slowest operations of one client thread: their type, key, start time, latency and return code, so that 
+ * latency outliers can be matched with events on the database servers, such as garbage collections or migrations.
+ * 
+ * The operations are kept in a min-heap on latency, so an operation that is not slower than the fastest one kept
+ * is skipped after a single comparison, which is the common case once the heap is full. Each instance has a single
+ * writer, the client thread that owns it; Measurements merges the operations of all threads when reporting.
+ */
+public class SlowOperations
+{
+	final String _namespace;
+	final String[] _operations;
+	final String[] _keys;
+	final long[] _starts;
+	final int[] _latencies;
+	final int[] _returncodes;
+	String _thread;
+	int _size;
+	
+	/**
+	 * The latency an operation must exceed to be kept: -1 until the heap is full, then the smallest latency kept.
+	 */
+	int _threshold;
+	
+	/**
+	 * @param capacity The number of operations to keep.
+	 * @param namespace The measurement namespace of the owning thread, for the names of the operations.
+	 */
+	public SlowOperations(int capacity, String namespace)
+	{
+		_namespace=namespace;
+		_operations=new String[capacity];
+		_keys=new String[capacity];
+		_starts=new long[capacity];
+		_latencies=new int[capacity];
+		_returncodes=new int[capacity];
+		_size=0;
+		_threshold=-1;
+	}
+	
+	/**
+	 * Offer an operation, which is kept if it is among the slowest so far. Must only be called by the thread that 
+	 * owns this instance.
+	 * 
+	 * @param start The start time of the operation, in milliseconds since the epoch.
+	 */
+	public void offer(String operation, String key, long start, int latency, int returncode)
+	{
+		if (latency<=_threshold)
+		{
+			return;
+		}
+		if (_thread==null)
+		{
+			_thread=Thread.currentThread().getName();
+		}
+		
+		if (_size<_latencies.length)
+		{
+			//add at the bottom and sift up
+			int i=_size++;
+			while (i>0)
+			{
+				int parent=(i-1)/2;
+				if (_latencies[parent]<=latency)
+				{
+					break;
+				}
+				move(parent,i);
+				i=parent;
+			}
+			set(i,operation,key,start,latency,returncode);
+			if (_size==_latencies.length)
+			{
+				_threshold=_latencies[0];
+			}
+			return;
+		}
+		
+		//replace the fastest operation kept, at the root, and sift down
+		int i=0;
+		while (true)
+		{
+			int child=2*i+1;
+			if (child>=_size)
+			{
+				break;
+			}
+			if ( (child+1<_size) && (_latencies[child+1]<_latencies[child]) )
+			{
+				child++;
+			}
+			if (_latencies[child]>=latency)
+			{
+				break;
+			}
+			move(child,i);
+			i=child;
+		}
+		set(i,operation,key,start,latency,returncode);
+		_threshold=_latencies[0];
+	}
+	
+	void move(int from, int to)
+	{
+		_operations[to]=_operations[from];
+		_keys[to]=_keys[from];
+		_starts[to]=_starts[from];
+		_latencies[to]=_latencies[from];
+		_returncodes[to]=_returncodes[from];
+	}
+	
+	void set(int i, String operation, String key, long start, int latency, int returncode)
+	{
+		_operations[i]=operation;
+		_keys[i]=key;
+		_starts[i]=start;
+		_latencies[i]=latency;
+		_returncodes[i]=returncode;
+	}
+	
+	/**
+	 * Return the number of operations kept.
+	 */
+	public int size()
+	{
+		return _size;
+	}
+	
+	/**
+	 * Return the latency of the ith operation kept, in no particular order.
+	 */
+	public int getLatency(int i)
+	{
+		return _latencies[i];
+	}
+	
+	/**
+	 * Return the start time of the ith operation kept.
+	 */
+	public long getStart(int i)
+	{
+		return _starts[i];
+	}
+	
+	/**
+	 * Describe the ith operation kept, for reports.
+	 */
+	public String describe(int i, SimpleDateFormat format)
+	{
+		return _namespace+_operations[i]+" key="+_keys[i]+" start="+format.format(new Date(_starts[i]))+" thread="+_thread+" latency="+_latencies[i]+"ms return="+_returncodes[i];
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for a change of the target throughput of a client thread, such as the start of
+ * a burst of a modulated arrival process.
+ */
+@Name("com.yahoo.ycsb.Target")
+@Label("YCSB Target")
+@Category("YCSB")
+@Description("The target throughput of a client thread changed")
+@StackTrace(false)
+public class TargetEvent extends jdk.jfr.Event
+{
+	@Label("Target")
+	@Description("The new target throughput of the thread, in operations per second")
+	double target;
+
+	public static void emit(double target)
+	{
+		TargetEvent event=new TargetEvent();
+		if (event.isEnabled())
+		{
+			event.target=target;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Summarizes the operations of one client thread: how many it did, over what time, and how long they took, so that
+ * threads that were starved or stuck, e.g. on one slow server, can be told apart from the others.
+ * 
+ * Each summary has a single writer (the client thread that owns it), so updates are plain writes that never contend,
+ * published by one ordered write of the operation count after the others. Readers such as the status thread read the
+ * count first, and see the other values as of that count or later, which is close enough for a running report.
+ */
+public class ThreadSummary
+{
+	static final AtomicLongFieldUpdater<ThreadSummary> OPERATIONS=AtomicLongFieldUpdater.newUpdater(ThreadSummary.class,"_operations");
+
+	final String _thread;
+
+	volatile long _operations;
+	long _totallatency;
+	int _maxlatency;
+	long _first=-1;
+	long _last=-1;
+
+	public ThreadSummary(String thread)
+	{
+		_thread=thread;
+	}
+
+	/**
+	 * Return the name of the thread.
+	 */
+	public String getThread()
+	{
+		return _thread;
+	}
+
+	/**
+	 * Add one operation. Must only be called by the thread that owns this summary.
+	 * 
+	 * @param start The start time of the operation, in milliseconds.
+	 * @param end The end time of the operation, in milliseconds.
+	 */
+	public void add(long start, long end)
+	{
+		int latency=(int)(end-start);
+		if (_first<0)
+		{
+			_first=start;
+		}
+		_last=end;
+		_totallatency+=latency;
+		if (latency>_maxlatency)
+		{
+			_maxlatency=latency;
+		}
+		//an ordered write is enough to publish the other fields, and cheaper than a volatile one
+		OPERATIONS.lazySet(this,_operations+1);
+	}
+
+	public long getOperations()
+	{
+		return _operations;
+	}
+
+	/**
+	 * Return the average latency in milliseconds, or 0 if there were no operations.
+	 */
+	public double getAverageLatency()
+	{
+		long operations=_operations;
+		return operations==0 ? 0 : ((double)_totallatency)/operations;
+	}
+
+	public int getMaxLatency()
+	{
+		return _maxlatency;
+	}
+
+	/**
+	 * Return the throughput from the start of the first operation to the end of the last, in operations per second.
+	 */
+	public double getThroughput()
+	{
+		long operations=_operations;
+		long time=_last-_first;
+		return (_first<0) || (time<=0) ? 0 : 1000.0*operations/time;
+	}
+
+	/**
+	 * Return the minimum, maximum and population standard deviation of a set of per thread values, such as throughputs.
+	 */
+	public static double[] spread(double[] values)
+	{
+		if (values.length==0)
+		{
+			return new double[] {0,0,0};
+		}
+		double min=values[0];
+		double max=values[0];
+		double sum=0;
+		for (double v : values)
+		{
+			min=Math.min(min,v);
+			max=Math.max(max,v);
+			sum+=v;
+		}
+		double mean=sum/values.length;
+		double squares=0;
+		for (double v : values)
+		{
+			squares+=(v-mean)*(v-mean);
+		}
+		return new double[] {min,max,Math.sqrt(squares/values.length)};
+	}
+}
@@ -46,4 +46,24 @@ public interface MeasurementsExporter extends Closeable
    */
   public void write(String metric, String measurement, double d) throws IOException;
 
+  /**
+   * Write a measurement to the exported format.
+   * 
+   * @param metric Metric name, for example "READ".
+   * @param measurement Measurement name, for example "BytesSent".
+   * @param l Measurement to write.
+   * @throws IOException if writing failed
+   */
+  public void write(String metric, String measurement, long l) throws IOException;
+
+  /**
+   * Write a measurement to the exported format.
+   * 
+   * @param metric Metric name, for example "READ".
+   * @param measurement Measurement name, for example "1000(phase)".
+   * @param s Measurement to write.
+   * @throws IOException if writing failed
+   */
+  public void write(String metric, String measurement, String s) throws IOException;
+
 }
@@ -46,6 +46,18 @@ public class TextMeasurementsExporter implements MeasurementsExporter
     bw.newLine();
   }
 
+  public void write(String metric, String measurement, long l) throws IOException
+  {
+    bw.write("[" + metric + "], " + measurement + ", " + l);
+    bw.newLine();
+  }
+
+  public void write(String metric, String measurement, String s) throws IOException
+  {
+    bw.write("[" + metric + "], " + measurement + ", " + s);
+    bw.newLine();
+  }
+
   public void close() throws IOException
   {
     this.bw.close();
@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.trace;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Converts access logs in a simple text format to binary trace files, and back. Each line of the text format holds 
+ * one operation:
+ * <pre>
+ * &lt;operation&gt; &lt;key&gt; [@&lt;timestamp in ms&gt;] [#&lt;scan length&gt;] [&lt;field&gt;[:&lt;value size&gt;] ...]
+ * </pre>
+ * where the operation is READ, UPDATE, INSERT, SCAN or DELETE. Blank lines and lines starting with // are skipped.
+ */
+public class TraceConverter
+{
+	public static void usageMessage()
+	{
+		System.out.println("Usage: java com.yahoo.ycsb.trace.TraceConverter [-d] <input> <output>");
+		System.out.println("  Converts a text access log to a binary trace file");
+		System.out.println("  -d: convert a binary trace file back to text");
+	}
+	
+	public static void main(String[] args)
+	{
+		boolean decode=false;
+		int argindex=0;
+		
+		if ( (args.length>argindex) && (args[argindex].compareTo("-d")==0) )
+		{
+			decode=true;
+			argindex++;
+		}
+		
+		if (args.length-argindex!=2)
+		{
+			usageMessage();
+			System.exit(0);
+		}
+		
+		try
+		{
+			long count;
+			if (decode)
+			{
+				count=toText(args[argindex],args[argindex+1]);
+			}
+			else
+			{
+				count=toBinary(args[argindex],args[argindex+1]);
+			}
+			System.err.println("Converted "+count+" records");
+		}
+		catch (IOException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Convert a text access log to a binary trace file, returning the number of records written.
+	 */
+	public static long toBinary(String input, String output) throws IOException
+	{
+		BufferedReader in=new BufferedReader(new FileReader(input));
+		TraceWriter out=new TraceWriter(output);
+		TraceRecord r=new TraceRecord();
+		long count=0;
+		int linenumber=0;
+		
+		try
+		{
+			String line;
+			while ((line=in.readLine())!=null)
+			{
+				linenumber++;
+				line=line.trim();
+				if ( (line.length()==0) || (line.startsWith("//")) )
+				{
+					continue;
+				}
+				
+				try
+				{
+					parse(line,r);
+				}
+				catch (IllegalArgumentException e)
+				{
+					throw new IOException(input+":"+linenumber+": "+e.getMessage());
+				}
+				out.write(r);
+				count++;
+			}
+		}
+		finally
+		{
+			in.close();
+			out.close();
+		}
+		return count;
+	}
+	
+	static void parse(String line, TraceRecord r)
+	{
+		String[] tokens=line.split("\\s+");
+		if (tokens.length<2)
+		{
+			throw new IllegalArgumentException("expected an operation and a key");
+		}
+		
+		r.operation=TraceFormat.operation(tokens[0].toUpperCase());
+		if (r.operation<0)
+		{
+			throw new IllegalArgumentException("unknown operation "+tokens[0]);
+		}
+		r.key=tokens[1];
+		r.hastimestamp=false;
+		r.scanlength=0;
+		r.fieldcount=0;
+		
+		int i=2;
+		if ( (i<tokens.length) && (tokens[i].startsWith("@")) )
+		{
+			r.hastimestamp=true;
+			r.timestamp=Math.round(Double.parseDouble(tokens[i].substring(1))*1000);
+			i++;
+		}
+		if ( (i<tokens.length) && (tokens[i].startsWith("#")) )
+		{
+			r.scanlength=Integer.parseInt(tokens[i].substring(1));
+			i++;
+		}
+		
+		r.ensureFields(tokens.length-i);
+		for (; i<tokens.length; i++)
+		{
+			String token=tokens[i];
+			int colon=token.lastIndexOf(':');
+			if (colon>=0)
+			{
+				r.fields[r.fieldcount]=token.substring(0,colon);
+				r.valuesizes[r.fieldcount]=Integer.parseInt(token.substring(colon+1));
+			}
+			else
+			{
+				r.fields[r.fieldcount]=token;
+				r.valuesizes[r.fieldcount]=0;
+			}
+			r.fieldcount++;
+		}
+	}
+	
+	/**
+	 * Convert a binary trace file to the text format, returning the number of records written.
+	 */
+	public static long toText(String input, String output) throws IOException
+	{
+		TraceReader in=new TraceReader(input);
+		BufferedWriter out=new BufferedWriter(new FileWriter(output));
+		long count=0;
+		
+		try
+		{
+			TraceRecord r;
+			StringBuilder sb=new StringBuilder();
+			while ((r=in.next())!=null)
+			{
+				sb.setLength(0);
+				sb.append(TraceFormat.OPERATION_NAMES[r.operation]).append(' ').append(r.key);
+				if (r.hastimestamp)
+				{
+					sb.append(" @").append(r.timestamp/1000);
+					long micros=Math.abs(r.timestamp%1000);
+					if (micros!=0)
+					{
+						sb.append('.').append(micros/100).append(micros/10%10).append(micros%10);
+					}
+				}
+				if (r.operation==TraceFormat.SCAN)
+				{
+					sb.append(" #").append(r.scanlength);
+				}
+				for (int i=0; i<r.fieldcount; i++)
+				{
+					sb.append(' ').append(r.fields[i]);
+					if (r.valuesizes[i]!=0)
+					{
+						sb.append(':').append(r.valuesizes[i]);
+					}
+				}
+				sb.append('\n');
+				out.write(sb.toString());
+				count++;
+			}
+		}
+		finally
+		{
+			in.close();
+			out.close();
+		}
+		return count;
+	}
+}
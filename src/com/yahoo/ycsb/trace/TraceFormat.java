@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.trace;
+
+import java.nio.charset.Charset;
+
+/**
+ * The binary trace format, for replaying recorded operations. A trace file starts with the 8 byte magic "YCSBTRC1",
+ * followed by one record per operation:
+ * <UL>
+ * <LI>the operation, one byte: READ=0, UPDATE=1, INSERT=2, SCAN=3, DELETE=4, with the TIMESTAMP flag (0x80) set if a timestamp follows
+ * <LI>if the TIMESTAMP flag is set: the time of the operation in microseconds, as a zigzag varlong relative to the previous timestamp in the file (or to 0)
+ * <LI>the key: a varint length and the UTF-8 bytes
+ * <LI>for scans: the number of records to scan, as a varint
+ * <LI>the number of fields, as a varint; 0 means all fields for reads and scans
+ * <LI>for each field: a varint length and the UTF-8 bytes of the field name, and the size of the value as a varint (0 for reads and scans)
+ * </UL>
+ * Varints are little endian groups of 7 bits, with the high bit set on all but the last byte.
+ */
+public class TraceFormat
+{
+	public static final byte[] MAGIC={'Y','C','S','B','T','R','C','1'};
+	
+	public static final int READ=0;
+	public static final int UPDATE=1;
+	public static final int INSERT=2;
+	public static final int SCAN=3;
+	public static final int DELETE=4;
+	
+	public static final String[] OPERATION_NAMES={"READ","UPDATE","INSERT","SCAN","DELETE"};
+	
+	public static final int TIMESTAMP=0x80;
+	
+	public static final int OPERATION_MASK=0x7f;
+	
+	/**
+	 * The largest record the reader accepts, in bytes. Records hold sizes rather than values, so they are small.
+	 */
+	public static final int MAX_RECORD_SIZE=1<<16;
+	
+	public static final Charset UTF8=Charset.forName("UTF-8");
+	
+	/**
+	 * Return the operation with the given name, or -1 if there is none.
+	 */
+	public static int operation(String name)
+	{
+		for (int i=0; i<OPERATION_NAMES.length; i++)
+		{
+			if (OPERATION_NAMES[i].compareTo(name)==0)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,272 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.trace;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Streams the records of a binary trace file through a memory-mapped window that slides along the file, so that traces
+ * of many gigabytes take little heap. A reader can return only the records of one partition of the trace: records are
+ * assigned to partitions by a hash of their key, so every record of a key goes to the same partition, in trace order, 
+ * and the assignment is the same on every run.
+ */
+public class TraceReader
+{
+	/**
+	 * The size of the mapped window.
+	 */
+	public static final long WINDOW_SIZE=64L<<20;
+	
+	RandomAccessFile _file;
+	FileChannel _channel;
+	long _size;
+	long _windowstart;
+	MappedByteBuffer _buffer;
+	
+	int _partition;
+	int _partitions;
+	
+	long _lasttimestamp;
+	boolean _hasfirsttimestamp;
+	long _firsttimestamp;
+	
+	byte[] _bytes=new byte[256];
+	TraceRecord _record=new TraceRecord();
+	
+	/**
+	 * Open a trace file, for all of its records.
+	 */
+	public TraceReader(String filename) throws IOException
+	{
+		this(filename,0,1);
+	}
+	
+	/**
+	 * Open a trace file, for the records of one partition.
+	 * 
+	 * @param partition The partition to read, from 0 to partitions-1.
+	 * @param partitions The number of partitions the trace is divided into.
+	 */
+	public TraceReader(String filename, int partition, int partitions) throws IOException
+	{
+		_partition=partition;
+		_partitions=partitions;
+		
+		_file=new RandomAccessFile(filename,"r");
+		_channel=_file.getChannel();
+		_size=_channel.size();
+		
+		map(0);
+		byte[] magic=new byte[TraceFormat.MAGIC.length];
+		if (_size<magic.length)
+		{
+			throw new IOException(filename+" is not a trace file");
+		}
+		_buffer.get(magic);
+		if (!Arrays.equals(magic,TraceFormat.MAGIC))
+		{
+			throw new IOException(filename+" is not a trace file");
+		}
+	}
+	
+	void map(long position) throws IOException
+	{
+		_windowstart=position;
+		_buffer=_channel.map(FileChannel.MapMode.READ_ONLY,position,Math.min(WINDOW_SIZE,_size-position));
+	}
+	
+	/**
+	 * Return the timestamp of the first record of the trace that has one, once a record with a timestamp has been read.
+	 */
+	public long getFirstTimestamp()
+	{
+		return _firsttimestamp;
+	}
+	
+	/**
+	 * Return the next record of this reader's partition, or null at the end of the trace. The returned record is 
+	 * overwritten by the next call. A truncated last record, as left by an interrupted recording, ends the trace.
+	 */
+	public TraceRecord next() throws IOException
+	{
+		try
+		{
+			while (true)
+			{
+				long position=_windowstart+_buffer.position();
+				if (position>=_size)
+				{
+					return null;
+				}
+				if ( (_buffer.remaining()<TraceFormat.MAX_RECORD_SIZE) && (_windowstart+_buffer.limit()<_size) )
+				{
+					map(position);
+				}
+				
+				if (readRecord())
+				{
+					return _record;
+				}
+			}
+		}
+		catch (BufferUnderflowException e)
+		{
+			_windowstart=_size;
+			_buffer.position(_buffer.limit());
+			return null;
+		}
+	}
+	
+	/**
+	 * Read one record, returning true if it belongs to this reader's partition. The timestamps of all records are
+	 * decoded, since each is relative to the one before.
+	 */
+	boolean readRecord() throws IOException
+	{
+		TraceRecord r=_record;
+		
+		int op=_buffer.get()&0xff;
+		r.operation=op&TraceFormat.OPERATION_MASK;
+		if (r.operation>=TraceFormat.OPERATION_NAMES.length)
+		{
+			throw new IOException("Corrupt trace: unknown operation "+r.operation+" at offset "+(_windowstart+_buffer.position()-1));
+		}
+		r.hastimestamp=(op&TraceFormat.TIMESTAMP)!=0;
+		if (r.hastimestamp)
+		{
+			long delta=readVarlong();
+			_lasttimestamp+=(delta>>>1)^-(delta&1);
+			if (!_hasfirsttimestamp)
+			{
+				_firsttimestamp=_lasttimestamp;
+				_hasfirsttimestamp=true;
+			}
+			r.timestamp=_lasttimestamp;
+		}
+		
+		int keylength=readBytes();
+		boolean mine=true;
+		if (_partitions>1)
+		{
+			long hash=Utils.FNV_offset_basis_64;
+			for (int i=0; i<keylength; i++)
+			{
+				hash^=_bytes[i]&0xff;
+				hash*=Utils.FNV_prime_64;
+			}
+			mine=(((hash&Utils.HASH_MASK)%_partitions)==_partition);
+		}
+		
+		if (r.operation==TraceFormat.SCAN)
+		{
+			r.scanlength=(int)readVarlong();
+		}
+		
+		int fieldcount=(int)readVarlong();
+		if (!mine)
+		{
+			for (int i=0; i<fieldcount; i++)
+			{
+				int length=(int)readVarlong();
+				_buffer.position(_buffer.position()+length);
+				readVarlong();
+			}
+			return false;
+		}
+		
+		r.key=new String(_bytes,0,keylength,TraceFormat.UTF8);
+		r.fieldcount=fieldcount;
+		r.ensureFields(fieldcount);
+		for (int i=0; i<fieldcount; i++)
+		{
+			int length=readBytes();
+			if (!matches(r.fields[i],length))
+			{
+				r.fields[i]=new String(_bytes,0,length,TraceFormat.UTF8);
+			}
+			r.valuesizes[i]=(int)readVarlong();
+		}
+		return true;
+	}
+	
+	/**
+	 * Return true if s is the ASCII string in the first length bytes of _bytes. Records mostly repeat the field names
+	 * of the record before, which can then be reused.
+	 */
+	boolean matches(String s, int length)
+	{
+		if ( (s==null) || (s.length()!=length) )
+		{
+			return false;
+		}
+		for (int i=0; i<length; i++)
+		{
+			if (s.charAt(i)!=_bytes[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Read a varint length and that many bytes into _bytes, returning the length.
+	 */
+	int readBytes() throws IOException
+	{
+		int length=(int)readVarlong();
+		if ( (length<0) || (length>TraceFormat.MAX_RECORD_SIZE) )
+		{
+			throw new IOException("Corrupt trace: string of length "+length+" at offset "+(_windowstart+_buffer.position()));
+		}
+		if (_bytes.length<length)
+		{
+			_bytes=new byte[Math.max(length,2*_bytes.length)];
+		}
+		_buffer.get(_bytes,0,length);
+		return length;
+	}
+	
+	long readVarlong()
+	{
+		long ret=0;
+		int shift=0;
+		byte b;
+		do
+		{
+			b=_buffer.get();
+			ret|=((long)(b&0x7f))<<shift;
+			shift+=7;
+		}
+		while (b<0);
+		return ret;
+	}
+	
+	public void close() throws IOException
+	{
+		_channel.close();
+		_file.close();
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.trace;
+
+/**
+ * One operation of a trace. A TraceReader reuses one record for all the operations it returns.
+ */
+public class TraceRecord
+{
+	/**
+	 * The operation, one of the TraceFormat operation codes.
+	 */
+	public int operation;
+	
+	/**
+	 * True if the operation has a timestamp.
+	 */
+	public boolean hastimestamp;
+	
+	/**
+	 * The time of the operation in microseconds, if it has a timestamp.
+	 */
+	public long timestamp;
+	
+	public String key;
+	
+	/**
+	 * For scans, the number of records to scan.
+	 */
+	public int scanlength;
+	
+	/**
+	 * The number of fields; 0 means all fields for reads and scans.
+	 */
+	public int fieldcount;
+	
+	/**
+	 * The names of the fields; only the first fieldcount are valid.
+	 */
+	public String[] fields=new String[16];
+	
+	/**
+	 * The sizes of the values of the fields; only the first fieldcount are valid.
+	 */
+	public int[] valuesizes=new int[16];
+	
+	/**
+	 * Make room for n fields.
+	 */
+	void ensureFields(int n)
+	{
+		if (fields.length<n)
+		{
+			String[] newfields=new String[Math.max(n,2*fields.length)];
+			System.arraycopy(fields,0,newfields,0,fields.length);
+			fields=newfields;
+			int[] newsizes=new int[newfields.length];
+			System.arraycopy(valuesizes,0,newsizes,0,valuesizes.length);
+			valuesizes=newsizes;
+		}
+	}
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.trace;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes a binary trace file. Records are collected in a buffer owned by the writer, and written to the file when the
+ * buffer fills up, so a writer must only be used by one thread at a time.
+ */
+public class TraceWriter
+{
+	/**
+	 * Pass as the timestamp of a record that has none.
+	 */
+	public static final long NO_TIMESTAMP=Long.MIN_VALUE;
+	
+	/**
+	 * The size of the buffer.
+	 */
+	public static final int BUFFER_SIZE=1<<20;
+	
+	FileChannel _channel;
+	ByteBuffer _buffer;
+	long _lasttimestamp;
+	
+	/**
+	 * Create a trace file, replacing any file of that name.
+	 */
+	public TraceWriter(String filename) throws IOException
+	{
+		_channel=new FileOutputStream(filename).getChannel();
+		_buffer=ByteBuffer.allocate(BUFFER_SIZE);
+		_buffer.put(TraceFormat.MAGIC);
+		_lasttimestamp=0;
+	}
+	
+	/**
+	 * Write the record of one operation.
+	 * 
+	 * @param operation One of the TraceFormat operation codes.
+	 * @param timestamp The time of the operation in microseconds, or NO_TIMESTAMP.
+	 * @param key The record key.
+	 * @param scanlength For scans, the number of records to scan.
+	 * @param fields For reads and scans, the fields to read, or null for all of them.
+	 * @param values For updates and inserts, the field/value pairs to write; only the sizes of the values are recorded.
+	 */
+	public void write(int operation, long timestamp, String key, int scanlength, Set<String> fields, Map<String,String> values) throws IOException
+	{
+		int start=begin();
+		try
+		{
+			putHeader(operation,timestamp!=NO_TIMESTAMP,timestamp,key,scanlength);
+			if (values!=null)
+			{
+				putVarlong(values.size());
+				for (Map.Entry<String,String> entry : values.entrySet())
+				{
+					putString(entry.getKey());
+					String value=entry.getValue();
+					putVarlong(value==null ? 0 : value.length());
+				}
+			}
+			else if (fields!=null)
+			{
+				putVarlong(fields.size());
+				for (String field : fields)
+				{
+					putString(field);
+					putVarlong(0);
+				}
+			}
+			else
+			{
+				putVarlong(0);
+			}
+		}
+		catch (BufferOverflowException e)
+		{
+			_buffer.position(start);
+		}
+		end(start,key);
+	}
+	
+	/**
+	 * Write a record, as read from another trace.
+	 */
+	public void write(TraceRecord record) throws IOException
+	{
+		int start=begin();
+		try
+		{
+			putHeader(record.operation,record.hastimestamp,record.timestamp,record.key,record.scanlength);
+			putVarlong(record.fieldcount);
+			for (int i=0; i<record.fieldcount; i++)
+			{
+				putString(record.fields[i]);
+				putVarlong(record.valuesizes[i]);
+			}
+		}
+		catch (BufferOverflowException e)
+		{
+			_buffer.position(start);
+		}
+		end(start,record.key);
+	}
+	
+	int begin() throws IOException
+	{
+		if (_buffer.remaining()<TraceFormat.MAX_RECORD_SIZE)
+		{
+			flush();
+		}
+		return _buffer.position();
+	}
+	
+	/**
+	 * Reject the record just written if it overflowed the buffer or is larger than a reader accepts.
+	 */
+	void end(int start, String key) throws IOException
+	{
+		if ( (_buffer.position()==start) || (_buffer.position()-start>TraceFormat.MAX_RECORD_SIZE) )
+		{
+			_buffer.position(start);
+			throw new IOException("Trace record for key "+key+" is larger than "+TraceFormat.MAX_RECORD_SIZE+" bytes");
+		}
+	}
+	
+	void putHeader(int operation, boolean hastimestamp, long timestamp, String key, int scanlength)
+	{
+		if (!hastimestamp)
+		{
+			_buffer.put((byte)operation);
+		}
+		else
+		{
+			_buffer.put((byte)(operation|TraceFormat.TIMESTAMP));
+			long delta=timestamp-_lasttimestamp;
+			putVarlong((delta<<1)^(delta>>63));
+			_lasttimestamp=timestamp;
+		}
+		
+		putString(key);
+		
+		if (operation==TraceFormat.SCAN)
+		{
+			putVarlong(scanlength);
+		}
+	}
+	
+	void putVarlong(long value)
+	{
+		while ((value&~0x7fL)!=0)
+		{
+			_buffer.put((byte)((value&0x7f)|0x80));
+			value>>>=7;
+		}
+		_buffer.put((byte)value);
+	}
+	
+	void putString(String s)
+	{
+		//keys and field names are usually ASCII, which needs no encoding
+		int length=s.length();
+		boolean ascii=true;
+		for (int i=0; (i<length) && (ascii); i++)
+		{
+			ascii=s.charAt(i)<0x80;
+		}
+		if (ascii)
+		{
+			putVarlong(length);
+			for (int i=0; i<length; i++)
+			{
+				_buffer.put((byte)s.charAt(i));
+			}
+		}
+		else
+		{
+			byte[] bytes=s.getBytes(TraceFormat.UTF8);
+			putVarlong(bytes.length);
+			_buffer.put(bytes);
+		}
+	}
+	
+	/**
+	 * Write the buffered records to the file.
+	 */
+	public void flush() throws IOException
+	{
+		_buffer.flip();
+		while (_buffer.hasRemaining())
+		{
+			_channel.write(_buffer);
+		}
+		_buffer.clear();
+	}
+	
+	/**
+	 * Write the buffered records and close the file.
+	 */
+	public void close() throws IOException
+	{
+		flush();
+		_channel.close();
+	}
+}
@@ -0,0 +1,284 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A scenario made of several child workloads, such as a CoreWorkload read mix next to a TimeSeriesWorkload ingestion
+ * mix. Each child is a separate workload object, initialized with its own properties, so the children's generators 
+ * do not affect each other. The children either run mixed, each operation going to a child chosen by weight, or 
+ * one after the other, each for a number of operations.
+ * 
+ * The measurements of each child are reported under the child's name, such as ingest:INSERT, and the whole of each
+ * child transaction is measured as &lt;child&gt;:TRANSACTION, whose operation count gives the child's share of the throughput.
+ * Bytes are reported for the composite as a whole. Children that write should use different tables, or keys that 
+ * do not collide.
+ * 
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>children</b>: a comma separated list of child names (required)
+ * <LI><b>compositemode</b>: "weighted" to mix the children's operations, or "sequential" to run the children one after the other, in order (default: weighted)
+ * <LI><b>child.&lt;name&gt;.&lt;property&gt;</b>: sets a property for one child only; all other properties are shared by the children. A child's properties can also be read from the property file named by <b>child.&lt;name&gt;.propertyfile</b>
+ * <LI><b>child.&lt;name&gt;.workload</b>: the workload class of the child (required)
+ * <LI><b>child.&lt;name&gt;.weight</b>: for the weighted mode, the child's share of the operations, relative to the other children (default: 1)
+ * <LI><b>child.&lt;name&gt;.operationcount</b>: for the sequential mode, the number of transactions of the child's phase, over all threads. The load phase instead inserts the child's insertcount or recordcount records. The last child runs until the client stops.
+ * </ul>
+ */
+public class CompositeWorkload extends Workload
+{
+	/**
+	 * The name of the property for the list of children.
+	 */
+	public static final String CHILDREN_PROPERTY="children";
+	
+	/**
+	 * The name of the property for how the children are combined.
+	 */
+	public static final String COMPOSITE_MODE_PROPERTY="compositemode";
+	
+	/**
+	 * The default way the children are combined.
+	 */
+	public static final String COMPOSITE_MODE_PROPERTY_DEFAULT="weighted";
+	
+	/**
+	 * The prefix of the properties of one child.
+	 */
+	public static final String CHILD_PROPERTY_PREFIX="child.";
+	
+	/**
+	 * The name of the property for the weight of a child.
+	 */
+	public static final String WEIGHT_PROPERTY="weight";
+	
+	/**
+	 * The default weight of a child.
+	 */
+	public static final String WEIGHT_PROPERTY_DEFAULT="1";
+	
+	String[] childnames;
+	
+	Workload[] children;
+	
+	boolean sequential;
+	
+	DiscreteGenerator childchooser;
+	
+	/**
+	 * For the sequential mode, the number of transactions and of inserts at which each child's phase ends.
+	 */
+	long[] transactionends;
+	
+	long[] insertends;
+	
+	AtomicLong transactionsstarted;
+	
+	AtomicLong insertsstarted;
+	
+	boolean keybands;
+	
+	/**
+	 * The properties of each child, scoped to its child.&lt;name&gt;. prefix, for its init and initThread.
+	 */
+	Properties[] childprops;
+	
+	/**
+	 * The state of one client thread: the thread state of each child, and the measurement namespace of each child.
+	 */
+	static class ThreadState
+	{
+		Object[] _childstates;
+		String[] _namespaces;
+		String _namespace;
+	}
+	
+	/**
+	 * Initialize the scenario. 
+	 * Called once, in the main client thread, before any operations are started.
+	 */
+	public void init(Properties p) throws WorkloadException
+	{
+		String childlist=p.getProperty(CHILDREN_PROPERTY);
+		if (childlist==null)
+		{
+			throw new WorkloadException("Missing property: "+CHILDREN_PROPERTY);
+		}
+		childnames=childlist.split(",");
+		
+		String mode=p.getProperty(COMPOSITE_MODE_PROPERTY,COMPOSITE_MODE_PROPERTY_DEFAULT);
+		if (mode.compareTo("weighted")==0)
+		{
+			sequential=false;
+		}
+		else if (mode.compareTo("sequential")==0)
+		{
+			sequential=true;
+		}
+		else
+		{
+			throw new WorkloadException("Unknown composite mode \""+mode+"\"");
+		}
+		
+		children=new Workload[childnames.length];
+		childprops=new Properties[childnames.length];
+		childchooser=new DiscreteGenerator();
+		transactionends=new long[childnames.length];
+		insertends=new long[childnames.length];
+		transactionsstarted=new AtomicLong(0);
+		insertsstarted=new AtomicLong(0);
+		keybands=Measurements.getMeasurements().hasKeyBands();
+		
+		long transactions=0;
+		long inserts=0;
+		for (int i=0; i<childnames.length; i++)
+		{
+			childnames[i]=childnames[i].trim();
+			
+			try
+			{
+				childprops[i]=Client.scopedProperties(p,CHILD_PROPERTY_PREFIX+childnames[i]+".");
+			}
+			catch (IOException e)
+			{
+				throw new WorkloadException(e);
+			}
+			
+			String classname=childprops[i].getProperty(Client.WORKLOAD_PROPERTY);
+			if ( (classname==null) || (classname.compareTo(getClass().getName())==0) )
+			{
+				throw new WorkloadException("Missing property: "+CHILD_PROPERTY_PREFIX+childnames[i]+"."+Client.WORKLOAD_PROPERTY);
+			}
+			try
+			{
+				children[i]=(Workload)getClass().getClassLoader().loadClass(classname).getDeclaredConstructor().newInstance();
+			}
+			catch (Exception e)
+			{
+				throw new WorkloadException(e);
+			}
+			children[i].init(childprops[i]);
+			
+			childchooser.addValue(Double.parseDouble(childprops[i].getProperty(WEIGHT_PROPERTY,WEIGHT_PROPERTY_DEFAULT)),Integer.toString(i));
+			
+			transactions+=Long.parseLong(childprops[i].getProperty(Client.OPERATION_COUNT_PROPERTY,"0"));
+			transactionends[i]=transactions;
+			inserts+=Long.parseLong(childprops[i].getProperty(Client.INSERT_COUNT_PROPERTY,childprops[i].getProperty(Client.RECORD_COUNT_PROPERTY,"0")));
+			insertends[i]=inserts;
+		}
+	}
+	
+	/**
+	 * Initialize the children's state for a client thread. Each child gets the same scoped properties as in init.
+	 */
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		ThreadState state=new ThreadState();
+		state._childstates=new Object[children.length];
+		state._namespaces=new String[children.length];
+		state._namespace=Measurements.getNamespace();
+		for (int i=0; i<children.length; i++)
+		{
+			state._childstates[i]=children[i].initThread(childprops[i],mythreadid,threadcount);
+			state._namespaces[i]=state._namespace+childnames[i]+":";
+		}
+		return state;
+	}
+	
+	/**
+	 * Cleanup the children.
+	 */
+	public void cleanup() throws WorkloadException
+	{
+		for (Workload child : children)
+		{
+			child.cleanup();
+		}
+	}
+	
+	/**
+	 * Choose the child for the next operation: by weight, or by the phase that the operation number falls in.
+	 */
+	int chooseChild(AtomicLong started, long[] ends)
+	{
+		if (!sequential)
+		{
+			return Integer.parseInt(childchooser.nextString());
+		}
+		
+		long opnum=started.getAndIncrement();
+		for (int i=0; i<ends.length-1; i++)
+		{
+			if (opnum<ends[i])
+			{
+				return i;
+			}
+		}
+		return ends.length-1;
+	}
+	
+	public boolean doInsert(DB db, Object threadstate)
+	{
+		ThreadState state=(ThreadState)threadstate;
+		int child=chooseChild(insertsstarted,insertends);
+		
+		Measurements.setNamespace(state._namespaces[child]);
+		try
+		{
+			return children[child].doInsert(db,state._childstates[child]);
+		}
+		finally
+		{
+			Measurements.setNamespace(state._namespace);
+		}
+	}
+	
+	public boolean doTransaction(DB db, Object threadstate)
+	{
+		ThreadState state=(ThreadState)threadstate;
+		int child=chooseChild(transactionsstarted,transactionends);
+		
+		Measurements.setNamespace(state._namespaces[child]);
+		if (keybands)
+		{
+			//children that do not choose keys by popularity must not inherit the band of another child's operation
+			Measurements.getMeasurements().setKeyRank(-1,0);
+		}
+		try
+		{
+			long st=System.currentTimeMillis();
+			boolean ret=children[child].doTransaction(db,state._childstates[child]);
+			long en=System.currentTimeMillis();
+			Measurements.getMeasurements().measure("TRANSACTION",(int)(en-st));
+			return ret;
+		}
+		finally
+		{
+			Measurements.setNamespace(state._namespace);
+		}
+	}
+}
@@ -18,19 +18,25 @@
 package com.yahoo.ycsb.workloads;
 
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 import com.yahoo.ycsb.*;
+import com.yahoo.ycsb.generator.AcknowledgedCounterGenerator;
 import com.yahoo.ycsb.generator.CounterGenerator;
 import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.generator.DriftingIntegerGenerator;
 import com.yahoo.ycsb.generator.Generator;
+import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
 import com.yahoo.ycsb.generator.IntegerGenerator;
 import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
 import com.yahoo.ycsb.generator.SkewedLatestGenerator;
 import com.yahoo.ycsb.generator.UniformIntegerGenerator;
 import com.yahoo.ycsb.generator.ZipfianGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurementKeyDistribution;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Vector;
 
 /**
@@ -40,6 +46,7 @@ import java.util.Vector;
  * 
  * Properties to control the client:
  * <UL>
+ * <LI><b>table</b>: the name of the database table to run queries against (default: usertable)
  * <LI><b>fieldcount</b>: the number of fields in a record (default: 10)
  * <LI><b>fieldlength</b>: the size of each field (default: 100)
  * <LI><b>readallfields</b>: should reads read all fields (true) or just one (false) (default: true)
@@ -49,20 +56,48 @@ import java.util.Vector;
  * <LI><b>insertproportion</b>: what proportion of operations should be inserts (default: 0)
  * <LI><b>scanproportion</b>: what proportion of operations should be scans (default: 0)
  * <LI><b>readmodifywriteproportion</b>: what proportion of operations should be read a record, modify it, write it back (default: 0)
- * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate on - uniform, zipfian or latest (default: uniform)
+ * <LI><b>multireadmodifywriteproportion</b>: what proportion of operations should read a group of related records and then update them all, measured as one unit (default: 0)
+ * <LI><b>multikeymin</b>: the minimum number of records in a multi-record read-modify-write (default: 3)
+ * <LI><b>multikeymax</b>: the maximum number of records in a multi-record read-modify-write (default: 8)
+ * <LI><b>multikeygrouping</b>: how the records of a multi-record read-modify-write are related - "random" (chosen independently from the request distribution), "adjacent" (consecutive records starting at one chosen from the request distribution) or "grouped" (records of the same fixed-size group, such as one user's session, cart and profile) (default: grouped)
+ * <LI><b>multikeygroupsize</b>: for multikeygrouping=grouped, the number of records in each group (default: 8)
+ * <LI><b>multikeytransactional</b>: should a multi-record read-modify-write run inside a database transaction, for DB layers that support them (default: false)
+ * <LI><b>deleteproportion</b>: what proportion of operations should be deletes. Deletes remove the oldest live record, so with equal insert and delete proportions the number of live records stays constant while the keyspace churns (default: 0)
+ * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate on - uniform, zipfian, hotspot or latest (default: uniform)
+ * <LI><b>hotspotdatafraction</b>: for the hotspot distribution, the fraction of the records in the hot set (default: 0.2)
+ * <LI><b>hotspotopnfraction</b>: for the hotspot distribution, the fraction of the operations that access the hot set (default: 0.8)
+ * <LI><b>hotspotoffset</b>: for the hotspot distribution, the number of the first record in the hot set; the hot set wraps around at the end of the keyspace (default: 0)
+ * <LI><b>hotspotscrambled</b>: for the hotspot distribution, should the hot set be scattered over the keyspace (true) or be one contiguous range (false) (default: false)
+ * <LI><b>driftrate</b>: the number of records per second by which the favored region of the uniform, zipfian or hotspot distributions rotates through the keyspace (default: 0)
+ * <LI><b>phases</b>: a comma separated list of phases that change the operation proportions during the run. Each phase has a <b>phase.&lt;name&gt;.start</b> property, in seconds since the first transaction, and may override any of the proportion properties with <b>phase.&lt;name&gt;.&lt;property&gt;</b>. Before the first phase starts, the workload's own proportions apply (default: no phases)
  * <LI><b>maxscanlength</b>: for scans, what is the maximum number of records to scan (default: 1000)
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be used to choose the number of records to scan, for each scan, between 1 and maxscanlength (default: uniform)
- * <LI><b>insertorder</b>: should records be inserted in order by key ("ordered"), or in hashed order ("hashed") (default: hashed)
+ * <LI><b>insertorder</b>: should records be inserted in order by key ("ordered"), in hashed order ("hashed"), or in the order of a keyed permutation of the keyspace ("permuted") (default: hashed)
+ * <LI><b>permutationkey</b>: for insertorder=permuted, the key selecting the permutation; all clients of one experiment must use the same key (default: 0)
+ * <LI><b>keysampler</b>: should the keys chosen for reads, updates, scans and read-modify-writes be sampled, to report the hottest keys, the fitted zipfian constant and the coverage of the keyspace as KEYS (default: false)
+ * <LI><b>keysamplertopk</b>: the number of hottest keys the key sampler reports (default: 10)
  * </ul> 
  */
 public class CoreWorkload extends Workload
 {
 
 	/**
-	 * The name of the database table to run queries against.
+	 * The name of the database table to run queries against, unless the table property sets another.
 	 */
 	public static final String TABLENAME="usertable";
 
+	/**
+	 * The name of the property for the database table to run queries against.
+	 */
+	public static final String TABLENAME_PROPERTY="table";
+
+	/**
+	 * The default database table to run queries against.
+	 */
+	public static final String TABLENAME_PROPERTY_DEFAULT=TABLENAME;
+
+	String table;
+
 	/**
 	 * The name of the property for the number of fields in a record.
 	 */
@@ -163,7 +198,77 @@ public class CoreWorkload extends Workload
 	public static final String READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT="0.0";
 	
 	/**
-	 * The name of the property for the the distribution of requests across the keyspace. Options are "uniform", "zipfian" and "latest"
+	 * The name of the property for the proportion of transactions that are multi-record read-modify-writes.
+	 */
+	public static final String MULTIREADMODIFYWRITE_PROPORTION_PROPERTY="multireadmodifywriteproportion";
+	
+	/**
+	 * The default proportion of transactions that are multi-record read-modify-writes.
+	 */
+	public static final String MULTIREADMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT="0.0";
+	
+	/**
+	 * The name of the property for the minimum number of records in a multi-record read-modify-write.
+	 */
+	public static final String MULTI_KEY_MIN_PROPERTY="multikeymin";
+	
+	/**
+	 * The default minimum number of records in a multi-record read-modify-write.
+	 */
+	public static final String MULTI_KEY_MIN_PROPERTY_DEFAULT="3";
+	
+	/**
+	 * The name of the property for the maximum number of records in a multi-record read-modify-write.
+	 */
+	public static final String MULTI_KEY_MAX_PROPERTY="multikeymax";
+	
+	/**
+	 * The default maximum number of records in a multi-record read-modify-write.
+	 */
+	public static final String MULTI_KEY_MAX_PROPERTY_DEFAULT="8";
+	
+	/**
+	 * The name of the property for how the records of a multi-record read-modify-write are related. Options are "random", "adjacent" and "grouped"
+	 */
+	public static final String MULTI_KEY_GROUPING_PROPERTY="multikeygrouping";
+	
+	/**
+	 * The default grouping of the records of a multi-record read-modify-write.
+	 */
+	public static final String MULTI_KEY_GROUPING_PROPERTY_DEFAULT="grouped";
+	
+	/**
+	 * The name of the property for the number of records in each group, for multikeygrouping=grouped.
+	 */
+	public static final String MULTI_KEY_GROUP_SIZE_PROPERTY="multikeygroupsize";
+	
+	/**
+	 * The default number of records in each group.
+	 */
+	public static final String MULTI_KEY_GROUP_SIZE_PROPERTY_DEFAULT="8";
+	
+	/**
+	 * The name of the property for running multi-record read-modify-writes inside a database transaction.
+	 */
+	public static final String MULTI_KEY_TRANSACTIONAL_PROPERTY="multikeytransactional";
+	
+	/**
+	 * The default for running multi-record read-modify-writes inside a database transaction.
+	 */
+	public static final String MULTI_KEY_TRANSACTIONAL_PROPERTY_DEFAULT="false";
+	
+	/**
+	 * The name of the property for the proportion of transactions that are deletes.
+	 */
+	public static final String DELETE_PROPORTION_PROPERTY="deleteproportion";
+	
+	/**
+	 * The default proportion of transactions that are deletes.
+	 */
+	public static final String DELETE_PROPORTION_PROPERTY_DEFAULT="0.0";
+	
+	/**
+	 * The name of the property for the the distribution of requests across the keyspace. Options are "uniform", "zipfian", "hotspot" and "latest"
 	 */
 	public static final String REQUEST_DISTRIBUTION_PROPERTY="requestdistribution";
 	
@@ -172,6 +277,72 @@ public class CoreWorkload extends Workload
 	 */
 	public static final String REQUEST_DISTRIBUTION_PROPERTY_DEFAULT="uniform";
 
+	/**
+	 * The name of the property for the fraction of the records in the hot set, for the hotspot distribution.
+	 */
+	public static final String HOTSPOT_DATA_FRACTION_PROPERTY="hotspotdatafraction";
+	
+	/**
+	 * The default fraction of the records in the hot set.
+	 */
+	public static final String HOTSPOT_DATA_FRACTION_PROPERTY_DEFAULT="0.2";
+	
+	/**
+	 * The name of the property for the fraction of the operations that access the hot set, for the hotspot distribution.
+	 */
+	public static final String HOTSPOT_OPN_FRACTION_PROPERTY="hotspotopnfraction";
+	
+	/**
+	 * The default fraction of the operations that access the hot set.
+	 */
+	public static final String HOTSPOT_OPN_FRACTION_PROPERTY_DEFAULT="0.8";
+	
+	/**
+	 * The name of the property for the first record of the hot set, for the hotspot distribution.
+	 */
+	public static final String HOTSPOT_OFFSET_PROPERTY="hotspotoffset";
+	
+	/**
+	 * The default first record of the hot set.
+	 */
+	public static final String HOTSPOT_OFFSET_PROPERTY_DEFAULT="0";
+	
+	/**
+	 * The name of the property for scattering the hot set over the keyspace, for the hotspot distribution.
+	 */
+	public static final String HOTSPOT_SCRAMBLED_PROPERTY="hotspotscrambled";
+	
+	/**
+	 * The default for scattering the hot set.
+	 */
+	public static final String HOTSPOT_SCRAMBLED_PROPERTY_DEFAULT="false";
+
+	/**
+	 * The name of the property for the rate at which the favored region of the request distribution moves through the keyspace, in records per second.
+	 */
+	public static final String DRIFT_RATE_PROPERTY="driftrate";
+	
+	/**
+	 * The default drift rate: the request distribution does not move.
+	 */
+	public static final String DRIFT_RATE_PROPERTY_DEFAULT="0";
+	
+	/**
+	 * The name of the property listing the phases of the run, in order. Each phase is configured with properties 
+	 * prefixed by "phase.&lt;name&gt;.".
+	 */
+	public static final String PHASES_PROPERTY="phases";
+	
+	/**
+	 * The prefix of the properties of one phase.
+	 */
+	public static final String PHASE_PROPERTY_PREFIX="phase.";
+	
+	/**
+	 * The name of the property, after the phase prefix, for the start of a phase in seconds since the first transaction.
+	 */
+	public static final String PHASE_START_PROPERTY="start";
+
 	/**
 	 * The name of the property for the max scan length (number of records)
 	 */
@@ -193,7 +364,7 @@ public class CoreWorkload extends Workload
 	public static final String SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT="uniform";
 	
 	/**
-	 * The name of the property for the order to insert records. Options are "ordered" or "hashed"
+	 * The name of the property for the order to insert records. Options are "ordered", "hashed" or "permuted"
 	 */
 	public static final String INSERT_ORDER_PROPERTY="insertorder";
 	
@@ -202,21 +373,94 @@ public class CoreWorkload extends Workload
 	 */
 	public static final String INSERT_ORDER_PROPERTY_DEFAULT="hashed";
 	
+	/**
+	 * The name of the property for the key selecting the permutation used by insertorder=permuted.
+	 */
+	public static final String PERMUTATION_KEY_PROPERTY="permutationkey";
+	
+	/**
+	 * Default permutation key.
+	 */
+	public static final String PERMUTATION_KEY_PROPERTY_DEFAULT="0";
+	
+	/**
+	 * The name of the property for sampling the chosen keys.
+	 */
+	public static final String KEY_SAMPLER_PROPERTY="keysampler";
+	
+	/**
+	 * Default for sampling the chosen keys.
+	 */
+	public static final String KEY_SAMPLER_PROPERTY_DEFAULT="false";
+	
+	/**
+	 * The name of the property for the number of hottest keys the key sampler reports.
+	 */
+	public static final String KEY_SAMPLER_TOPK_PROPERTY="keysamplertopk";
+	
+	/**
+	 * Default number of hottest keys the key sampler reports.
+	 */
+	public static final String KEY_SAMPLER_TOPK_PROPERTY_DEFAULT="10";
+	
 	IntegerGenerator keysequence;
 
 	DiscreteGenerator operationchooser;
+	
+	String[] phasenames;
+	
+	long[] phasestarts;
+	
+	DiscreteGenerator[] phasechoosers;
+	
+	volatile long phasebase=-1;
+	
+	volatile int currentphase=-1;
 
 	IntegerGenerator keychooser;
 
 	Generator fieldchooser;
 
-	CounterGenerator transactioninsertkeysequence;
+	AcknowledgedCounterGenerator transactioninsertkeysequence;
+	
+	/**
+	 * Key number of the oldest live record. Deletes remove records oldest first, so the live records 
+	 * are the ones from oldestlivekey to transactioninsertkeysequence.lastLong().
+	 */
+	AtomicLong oldestlivekey;
 	
 	IntegerGenerator scanlength;
 	
 	boolean orderedinserts;
+	
+	IntegerGenerator multikeycount;
+	
+	String multikeygrouping;
+	
+	int multikeygroupsize;
+	
+	IntegerGenerator multikeygroupmember;
+	
+	boolean multikeytransactional;
+	
+	FeistelPermutation permutation;
 
-	int recordcount;
+	long recordcount;
+	
+	/**
+	 * Samples the chosen keys, or null if they are not sampled.
+	 */
+	OneMeasurementKeyDistribution keysampler;
+	
+	/**
+	 * Whether to tell the measurements the popularity rank of each chosen key, for keyrankbands.
+	 */
+	boolean keybands;
+	
+	/**
+	 * The measurements, kept so that choosing a key does not take the lock of Measurements.getMeasurements().
+	 */
+	Measurements measurements;
 	
 	/**
 	 * Initialize the scenario. 
@@ -224,26 +468,46 @@ public class CoreWorkload extends Workload
 	 */
 	public void init(Properties p) throws WorkloadException
 	{
+		table=p.getProperty(TABLENAME_PROPERTY,TABLENAME_PROPERTY_DEFAULT);
 		fieldcount=Integer.parseInt(p.getProperty(FIELD_COUNT_PROPERTY,FIELD_COUNT_PROPERTY_DEFAULT));
 		fieldlength=Integer.parseInt(p.getProperty(FIELD_LENGTH_PROPERTY,FIELD_LENGTH_PROPERTY_DEFAULT));
-		double readproportion=Double.parseDouble(p.getProperty(READ_PROPORTION_PROPERTY,READ_PROPORTION_PROPERTY_DEFAULT));
-		double updateproportion=Double.parseDouble(p.getProperty(UPDATE_PROPORTION_PROPERTY,UPDATE_PROPORTION_PROPERTY_DEFAULT));
 		double insertproportion=Double.parseDouble(p.getProperty(INSERT_PROPORTION_PROPERTY,INSERT_PROPORTION_PROPERTY_DEFAULT));
-		double scanproportion=Double.parseDouble(p.getProperty(SCAN_PROPORTION_PROPERTY,SCAN_PROPORTION_PROPERTY_DEFAULT));
-		double readmodifywriteproportion=Double.parseDouble(p.getProperty(READMODIFYWRITE_PROPORTION_PROPERTY,READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
-		recordcount=Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY));
+		recordcount=Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY));
 		String requestdistrib=p.getProperty(REQUEST_DISTRIBUTION_PROPERTY,REQUEST_DISTRIBUTION_PROPERTY_DEFAULT);
 		int maxscanlength=Integer.parseInt(p.getProperty(MAX_SCAN_LENGTH_PROPERTY,MAX_SCAN_LENGTH_PROPERTY_DEFAULT));
 		String scanlengthdistrib=p.getProperty(SCAN_LENGTH_DISTRIBUTION_PROPERTY,SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT);
 		
-		int insertstart=Integer.parseInt(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT));
+		long insertstart=Long.parseLong(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT));
 		
 		readallfields=Boolean.parseBoolean(p.getProperty(READ_ALL_FIELDS_PROPERTY,READ_ALL_FIELDS_PROPERTY_DEFAULT));
 		writeallfields=Boolean.parseBoolean(p.getProperty(WRITE_ALL_FIELDS_PROPERTY,WRITE_ALL_FIELDS_PROPERTY_DEFAULT));
 		
-		if (p.getProperty(INSERT_ORDER_PROPERTY,INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed")==0)
+		String insertorder=p.getProperty(INSERT_ORDER_PROPERTY,INSERT_ORDER_PROPERTY_DEFAULT);
+		if (insertorder.compareTo("hashed")==0)
+		{
+			orderedinserts=false;
+		}
+		else if (insertorder.compareTo("permuted")==0)
 		{
+			//permute over the whole initial keyspace, so that every client maps its insertstart/insertcount
+			//slice the same way; keys inserted during the run fall in later blocks of the same size. with no
+			//initial records, permute over the keys the run is expected to insert instead, as for zipfian
 			orderedinserts=false;
+			long permutationkey=Long.parseLong(p.getProperty(PERMUTATION_KEY_PROPERTY,PERMUTATION_KEY_PROPERTY_DEFAULT));
+			long range=recordcount;
+			if (range==0)
+			{
+				long opcount=Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY,"0"));
+				range=Math.max((long)(((double)opcount)*insertproportion*2.0),1);
+			}
+			try
+			{
+				permutation=new FeistelPermutation(range,permutationkey);
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new WorkloadException(e.getMessage());
+			}
 		}
 		else
 		{
@@ -251,36 +515,52 @@ public class CoreWorkload extends Workload
 		}
 
 		keysequence=new CounterGenerator(insertstart);
-		operationchooser=new DiscreteGenerator();
-		if (readproportion>0)
-		{
-			operationchooser.addValue(readproportion,"READ");
-		}
-
-		if (updateproportion>0)
-		{
-			operationchooser.addValue(updateproportion,"UPDATE");
-		}
-
-		if (insertproportion>0)
-		{
-			operationchooser.addValue(insertproportion,"INSERT");
-		}
-		
-		if (scanproportion>0)
-		{
-			operationchooser.addValue(scanproportion,"SCAN");
-		}
+		operationchooser=createOperationChooser(p);
 		
-		if (readmodifywriteproportion>0)
+		String phases=p.getProperty(PHASES_PROPERTY);
+		if (phases!=null)
 		{
-			operationchooser.addValue(readmodifywriteproportion,"READMODIFYWRITE");
+			String[] names=phases.split(",");
+			phasenames=new String[names.length];
+			phasestarts=new long[names.length];
+			phasechoosers=new DiscreteGenerator[names.length];
+			for (int i=0; i<names.length; i++)
+			{
+				phasenames[i]=names[i].trim();
+				String prefix=PHASE_PROPERTY_PREFIX+phasenames[i]+".";
+				
+				String start=p.getProperty(prefix+PHASE_START_PROPERTY);
+				if (start==null)
+				{
+					throw new WorkloadException("Missing property "+prefix+PHASE_START_PROPERTY+" for phase \""+phasenames[i]+"\"");
+				}
+				phasestarts[i]=(long)(Double.parseDouble(start)*1000.0);
+				if ( (i>0) && (phasestarts[i]<phasestarts[i-1]) )
+				{
+					throw new WorkloadException("Phase \""+phasenames[i]+"\" starts before phase \""+phasenames[i-1]+"\"");
+				}
+				
+				//the phase's own proportions override the ones of the whole workload
+				Properties phaseprops=new Properties(p);
+				for (String prop : p.stringPropertyNames())
+				{
+					if (prop.startsWith(prefix))
+					{
+						phaseprops.setProperty(prop.substring(prefix.length()),p.getProperty(prop));
+					}
+				}
+				phasechoosers[i]=createOperationChooser(phaseprops);
+			}
 		}
 
-		transactioninsertkeysequence=new CounterGenerator(recordcount);
+		transactioninsertkeysequence=new AcknowledgedCounterGenerator(recordcount);
+		oldestlivekey=new AtomicLong(0);
+		//the choosers cover at least one key, so a workload that starts with no records can choose keys once inserts make them live
+		long keyspace=-1;
 		if (requestdistrib.compareTo("uniform")==0)
 		{
-			keychooser=new UniformIntegerGenerator(0,recordcount-1);
+			keyspace=Math.max(recordcount,1);
+			keychooser=new UniformIntegerGenerator(0,keyspace-1);
 		}
 		else if (requestdistrib.compareTo("zipfian")==0)
 		{
@@ -291,10 +571,31 @@ public class CoreWorkload extends Workload
 			//plus the number of predicted keys as the total keyspace. then, if the generator picks a key that hasn't been inserted yet, will
 			//just ignore it and pick another key. this way, the size of the keyspace doesn't change from the perspective of the scrambled zipfian generator
 			
-			int opcount=Integer.parseInt(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
-			int expectednewkeys=(int)(((double)opcount)*insertproportion*2.0); //2 is fudge factor
+			long opcount=Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
+			long expectednewkeys=(long)(((double)opcount)*insertproportion*2.0); //2 is fudge factor
 			
-			keychooser=new ScrambledZipfianGenerator(recordcount+expectednewkeys);
+			keyspace=Math.max(recordcount+expectednewkeys,1);
+			keychooser=new ScrambledZipfianGenerator(keyspace);
+		}
+		else if (requestdistrib.compareTo("hotspot")==0)
+		{
+			double hotsetfraction=Double.parseDouble(p.getProperty(HOTSPOT_DATA_FRACTION_PROPERTY,HOTSPOT_DATA_FRACTION_PROPERTY_DEFAULT));
+			double hotopnfraction=Double.parseDouble(p.getProperty(HOTSPOT_OPN_FRACTION_PROPERTY,HOTSPOT_OPN_FRACTION_PROPERTY_DEFAULT));
+			long hotspotoffset=Long.parseLong(p.getProperty(HOTSPOT_OFFSET_PROPERTY,HOTSPOT_OFFSET_PROPERTY_DEFAULT));
+			boolean hotspotscrambled=Boolean.parseBoolean(p.getProperty(HOTSPOT_SCRAMBLED_PROPERTY,HOTSPOT_SCRAMBLED_PROPERTY_DEFAULT));
+			
+			HotspotIntegerGenerator hotspot;
+			try
+			{
+				hotspot=new HotspotIntegerGenerator(0,Math.max(recordcount,1)-1,hotsetfraction,hotopnfraction,hotspotscrambled);
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new WorkloadException(e.getMessage());
+			}
+			hotspot.setHotsetOffset(hotspotoffset);
+			keychooser=hotspot;
+			keyspace=Math.max(recordcount,1);
 		}
 		else if (requestdistrib.compareTo("latest")==0)
 		{
@@ -305,8 +606,47 @@ public class CoreWorkload extends Workload
 			throw new WorkloadException("Unknown distribution \""+requestdistrib+"\"");
 		}
 
+		double driftrate=Double.parseDouble(p.getProperty(DRIFT_RATE_PROPERTY,DRIFT_RATE_PROPERTY_DEFAULT));
+		if (driftrate!=0)
+		{
+			if (keyspace<0)
+			{
+				throw new WorkloadException("Distribution \""+requestdistrib+"\" does not support "+DRIFT_RATE_PROPERTY);
+			}
+			keychooser=new DriftingIntegerGenerator(keychooser,0,keyspace-1,driftrate);
+		}
+
 		fieldchooser=new UniformIntegerGenerator(0,fieldcount-1);
 		
+		measurements=Measurements.getMeasurements();
+		keybands=measurements.hasKeyBands();
+		
+		if (Boolean.parseBoolean(p.getProperty(KEY_SAMPLER_PROPERTY,KEY_SAMPLER_PROPERTY_DEFAULT)))
+		{
+			int topk=Integer.parseInt(p.getProperty(KEY_SAMPLER_TOPK_PROPERTY,KEY_SAMPLER_TOPK_PROPERTY_DEFAULT));
+			keysampler=(OneMeasurementKeyDistribution)measurements.register(new OneMeasurementKeyDistribution(measurements.name("KEYS"),topk,recordcount));
+		}
+		
+		int multikeymin=Integer.parseInt(p.getProperty(MULTI_KEY_MIN_PROPERTY,MULTI_KEY_MIN_PROPERTY_DEFAULT));
+		int multikeymax=Integer.parseInt(p.getProperty(MULTI_KEY_MAX_PROPERTY,MULTI_KEY_MAX_PROPERTY_DEFAULT));
+		if ( (multikeymin<1) || (multikeymax<multikeymin) )
+		{
+			throw new WorkloadException("Invalid multi-record range "+multikeymin+".."+multikeymax);
+		}
+		multikeycount=new UniformIntegerGenerator(multikeymin,multikeymax);
+		multikeygrouping=p.getProperty(MULTI_KEY_GROUPING_PROPERTY,MULTI_KEY_GROUPING_PROPERTY_DEFAULT);
+		if ( (multikeygrouping.compareTo("random")!=0) && (multikeygrouping.compareTo("adjacent")!=0) && (multikeygrouping.compareTo("grouped")!=0) )
+		{
+			throw new WorkloadException("Unknown multi-record grouping \""+multikeygrouping+"\"");
+		}
+		multikeygroupsize=Integer.parseInt(p.getProperty(MULTI_KEY_GROUP_SIZE_PROPERTY,MULTI_KEY_GROUP_SIZE_PROPERTY_DEFAULT));
+		if ( (multikeygrouping.compareTo("grouped")==0) && (multikeygroupsize<multikeymax) )
+		{
+			throw new WorkloadException(MULTI_KEY_GROUP_SIZE_PROPERTY+" must be at least "+MULTI_KEY_MAX_PROPERTY);
+		}
+		multikeygroupmember=new UniformIntegerGenerator(0,multikeygroupsize-1);
+		multikeytransactional=Boolean.parseBoolean(p.getProperty(MULTI_KEY_TRANSACTIONAL_PROPERTY,MULTI_KEY_TRANSACTIONAL_PROPERTY_DEFAULT));
+		
 		if (scanlengthdistrib.compareTo("uniform")==0)
 		{
 			scanlength=new UniformIntegerGenerator(1,maxscanlength);
@@ -322,111 +662,161 @@ public class CoreWorkload extends Workload
 	}
 
 	/**
-	 * Do one insert operation. Because it will be called concurrently from multiple client threads, this 
-	 * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each 
-	 * other, and it will be difficult to reach the target throughput. Ideally, this function would have no side
-	 * effects other than DB operations.
+	 * Report the key sampler's coverage against the keys that were live at the end of the run.
 	 */
-	public boolean doInsert(DB db, Object threadstate)
+	public void cleanup() throws WorkloadException
 	{
-		int keynum=keysequence.nextInt();
-		if (!orderedinserts)
-		{
-			keynum=Utils.hash(keynum);
-		}
-		String dbkey="user"+keynum;
-		HashMap<String,String> values=new HashMap<String,String>();
-		for (int i=0; i<fieldcount; i++)
+		if (keysampler!=null)
 		{
-			String fieldkey="field"+i;
-			String data=Utils.ASCIIString(fieldlength);
-			values.put(fieldkey,data);
+			keysampler.setKeyspace(transactioninsertkeysequence.lastLong()+1-oldestlivekey.get());
 		}
-		db.insert(TABLENAME,dbkey,values);
-		
-		return true;
 	}
 
 	/**
-	 * Do one transaction operation. Because it will be called concurrently from multiple client threads, this 
-	 * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each 
-	 * other, and it will be difficult to reach the target throughput. Ideally, this function would have no side
-	 * effects other than DB operations.
+	 * Create the generator that chooses the type of each transaction, from the proportion properties.
 	 */
-	public boolean doTransaction(DB db, Object threadstate)
+	static DiscreteGenerator createOperationChooser(Properties p)
 	{
-		String op=operationchooser.nextString();
+		double readproportion=Double.parseDouble(p.getProperty(READ_PROPORTION_PROPERTY,READ_PROPORTION_PROPERTY_DEFAULT));
+		double updateproportion=Double.parseDouble(p.getProperty(UPDATE_PROPORTION_PROPERTY,UPDATE_PROPORTION_PROPERTY_DEFAULT));
+		double insertproportion=Double.parseDouble(p.getProperty(INSERT_PROPORTION_PROPERTY,INSERT_PROPORTION_PROPERTY_DEFAULT));
+		double scanproportion=Double.parseDouble(p.getProperty(SCAN_PROPORTION_PROPERTY,SCAN_PROPORTION_PROPERTY_DEFAULT));
+		double readmodifywriteproportion=Double.parseDouble(p.getProperty(READMODIFYWRITE_PROPORTION_PROPERTY,READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
+		double multireadmodifywriteproportion=Double.parseDouble(p.getProperty(MULTIREADMODIFYWRITE_PROPORTION_PROPERTY,MULTIREADMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
+		double deleteproportion=Double.parseDouble(p.getProperty(DELETE_PROPORTION_PROPERTY,DELETE_PROPORTION_PROPERTY_DEFAULT));
 
-		if (op.compareTo("READ")==0)
+		DiscreteGenerator chooser=new DiscreteGenerator();
+		if (readproportion>0)
 		{
-			doTransactionRead(db);
+			chooser.addValue(readproportion,"READ");
 		}
-		else if (op.compareTo("UPDATE")==0)
+
+		if (updateproportion>0)
 		{
-			doTransactionUpdate(db);
+			chooser.addValue(updateproportion,"UPDATE");
 		}
-		else if (op.compareTo("INSERT")==0)
+
+		if (insertproportion>0)
 		{
-			doTransactionInsert(db);
+			chooser.addValue(insertproportion,"INSERT");
 		}
-		else if (op.compareTo("SCAN")==0)
+		
+		if (scanproportion>0)
 		{
-			doTransactionScan(db);
+			chooser.addValue(scanproportion,"SCAN");
 		}
-		else
+		
+		if (readmodifywriteproportion>0)
 		{
-			doTransactionReadModifyWrite(db);
+			chooser.addValue(readmodifywriteproportion,"READMODIFYWRITE");
 		}
 		
-		return true;
+		if (multireadmodifywriteproportion>0)
+		{
+			chooser.addValue(multireadmodifywriteproportion,"MULTIREADMODIFYWRITE");
+		}
+		
+		if (deleteproportion>0)
+		{
+			chooser.addValue(deleteproportion,"DELETE");
+		}
+		
+		return chooser;
 	}
 
-	public void doTransactionRead(DB db)
+	/**
+	 * Return the generator for the type of the next transaction: the one of the phase that is active now, 
+	 * or the one of the whole workload if there are no phases or the first phase has not started yet. 
+	 * The phase schedule starts with the first transaction.
+	 */
+	DiscreteGenerator chooseOperationGenerator()
 	{
-		//choose a random key
-		int keynum;
-		do
+		if (phasestarts==null)
 		{
-			keynum=keychooser.nextInt();
+			return operationchooser;
 		}
-		while (keynum>transactioninsertkeysequence.lastInt());
 		
-		if (!orderedinserts)
+		long now=System.currentTimeMillis();
+		if (phasebase<0)
 		{
-			keynum=Utils.hash(keynum);
+			phasebase=now;
 		}
-		String keyname="user"+keynum;
-
-		HashSet<String> fields=null;
-
-		if (!readallfields)
+		long elapsed=now-phasebase;
+		
+		int phase=-1;
+		for (int i=0; (i<phasestarts.length) && (phasestarts[i]<=elapsed); i++)
 		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
+			phase=i;
+		}
+		
+		if (phase!=currentphase)
+		{
+			currentphase=phase;
+			Measurements.getMeasurements().setPhase(phase<0 ? null : phasenames[phase]);
+		}
+		
+		return phase<0 ? operationchooser : phasechoosers[phase];
+	}
 
-			fields=new HashSet<String>();
-			fields.add(fieldname);
+	/**
+	 * Choose the key number for a read, update, scan or read-modify-write. Only live keys are chosen: keys 
+	 * whose insert has been acknowledged and that have not been deleted. A key number outside the live range 
+	 * (e.g. one the zipfian generator reserved for future inserts, or one that has been deleted) is folded 
+	 * back into the live range instead of being redrawn, so choosing a key never spins.
+	 */
+	long nextKeynum()
+	{
+		long keynum;
+		if (keybands)
+		{
+			long[] rank=measurements.getKeyRank();
+			keynum=liveKeynum(keychooser.nextRankedLong(rank));
+			measurements.setKeyRank(rank);
+		}
+		else
+		{
+			keynum=liveKeynum(keychooser.nextLong());
+		}
+		if (keysampler!=null)
+		{
+			keysampler.sample(keynum);
 		}
+		return keynum;
+	}
 
-		db.read(TABLENAME,keyname,fields,new HashMap<String,String>());
+	/**
+	 * Return true if some key is live. None is before the first insert is acknowledged when there are no records 
+	 * to start with. Once a key is live, one stays live, since deletes always leave one.
+	 */
+	boolean hasLiveKeys()
+	{
+		return transactioninsertkeysequence.lastLong()>=oldestlivekey.get();
 	}
-	
-	public void doTransactionReadModifyWrite(DB db)
+
+	/**
+	 * Fold a key number into the range of live keys. Key numbers that are live already are returned unchanged.
+	 */
+	long liveKeynum(long keynum)
 	{
-		//choose a random key
-		int keynum;
-		do
+		long limit=transactioninsertkeysequence.lastLong();
+		long oldest=oldestlivekey.get();
+		if (limit<oldest)
 		{
-			keynum=keychooser.nextInt();
+			//no key is live; callers check hasLiveKeys() first, so this only guards the division below
+			return oldest;
 		}
-		while (keynum>transactioninsertkeysequence.lastInt());
-		
-		if (!orderedinserts)
+		if ( (keynum>limit) || (keynum<oldest) )
 		{
-			keynum=Utils.hash(keynum);
+			keynum=oldest+(keynum%(limit-oldest+1));
 		}
-		String keyname="user"+keynum;
+		return keynum;
+	}
 
+	/**
+	 * Choose the fields to read: null for all fields, or one random field.
+	 */
+	HashSet<String> buildReadFields()
+	{
 		HashSet<String> fields=null;
 
 		if (!readallfields)
@@ -437,7 +827,14 @@ public class CoreWorkload extends Workload
 			fields=new HashSet<String>();
 			fields.add(fieldname);
 		}
-		
+		return fields;
+	}
+
+	/**
+	 * Build the new values for an update: all fields, or one random field.
+	 */
+	HashMap<String,String> buildUpdateValues()
+	{
 		HashMap<String,String> values=new HashMap<String,String>();
 
 		if (writeallfields)
@@ -457,14 +854,177 @@ public class CoreWorkload extends Workload
 		   String data=Utils.ASCIIString(fieldlength);		   
 		   values.put(fieldname,data);
 		}
+		return values;
+	}
+
+	/**
+	 * Choose the key numbers of the records touched by one multi-record read-modify-write, following multikeygrouping.
+	 */
+	long[] nextKeynumGroup()
+	{
+		int count=multikeycount.nextInt();
+		long anchor=nextKeynum();
+		
+		LinkedHashSet<Long> keynums=new LinkedHashSet<Long>();
+		if (multikeygrouping.compareTo("random")==0)
+		{
+			keynums.add(anchor);
+			for (int i=1; i<count; i++)
+			{
+				//a repeated key is only touched once, so the group may come out smaller than count
+				keynums.add(nextKeynum());
+			}
+		}
+		else if (multikeygrouping.compareTo("adjacent")==0)
+		{
+			for (int i=0; i<count; i++)
+			{
+				keynums.add(liveKeynum(anchor+i));
+			}
+		}
+		else
+		{
+			//count distinct members of the group the anchor belongs to, starting with the anchor
+			long groupstart=anchor-(anchor%multikeygroupsize);
+			keynums.add(anchor);
+			while (keynums.size()<count)
+			{
+				keynums.add(liveKeynum(groupstart+multikeygroupmember.nextInt()));
+			}
+		}
+		
+		long[] ret=new long[keynums.size()];
+		int i=0;
+		for (Long keynum : keynums)
+		{
+			ret[i++]=keynum;
+		}
+		return ret;
+	}
+
+	/**
+	 * Build the record key for a key number, according to the insert order.
+	 */
+	String buildKeyName(long keynum)
+	{
+		if (permutation!=null)
+		{
+			keynum=permutation.permute(keynum);
+		}
+		else if (!orderedinserts)
+		{
+			keynum=Utils.hash(keynum);
+		}
+		return "user"+keynum;
+	}
+
+	/**
+	 * Do one insert operation. Because it will be called concurrently from multiple client threads, this 
+	 * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each 
+	 * other, and it will be difficult to reach the target throughput. Ideally, this function would have no side
+	 * effects other than DB operations.
+	 */
+	public boolean doInsert(DB db, Object threadstate)
+	{
+		long keynum=keysequence.nextLong();
+		String dbkey=buildKeyName(keynum);
+		HashMap<String,String> values=new HashMap<String,String>();
+		for (int i=0; i<fieldcount; i++)
+		{
+			String fieldkey="field"+i;
+			String data=Utils.ASCIIString(fieldlength);
+			values.put(fieldkey,data);
+		}
+		db.insert(table,dbkey,values);
+		
+		return true;
+	}
+
+	/**
+	 * Do one transaction operation. Because it will be called concurrently from multiple client threads, this 
+	 * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each 
+	 * other, and it will be difficult to reach the target throughput. Ideally, this function would have no side
+	 * effects other than DB operations.
+	 */
+	public boolean doTransaction(DB db, Object threadstate)
+	{
+		String op=chooseOperationGenerator().nextString();
+		
+		if (keybands)
+		{
+			//only operations on a key chosen by popularity are measured by band
+			measurements.setKeyRank(-1,0);
+		}
+
+		if ( (op.compareTo("INSERT")==0) || ( (op.compareTo("DELETE")!=0) && (!hasLiveKeys()) ) )
+		{
+			//there is no key to read or update yet, e.g. when starting with no records, so insert one instead
+			doTransactionInsert(db);
+		}
+		else if (op.compareTo("READ")==0)
+		{
+			doTransactionRead(db);
+		}
+		else if (op.compareTo("UPDATE")==0)
+		{
+			doTransactionUpdate(db);
+		}
+		else if (op.compareTo("SCAN")==0)
+		{
+			doTransactionScan(db);
+		}
+		else if (op.compareTo("DELETE")==0)
+		{
+			doTransactionDelete(db);
+		}
+		else if (op.compareTo("MULTIREADMODIFYWRITE")==0)
+		{
+			doTransactionMultiReadModifyWrite(db);
+		}
+		else
+		{
+			doTransactionReadModifyWrite(db);
+		}
+		
+		return true;
+	}
+
+	public void doTransactionRead(DB db)
+	{
+		//choose a random key
+		doTransactionRead(db,nextKeynum());
+	}
+	
+	public void doTransactionRead(DB db, long keynum)
+	{
+		String keyname=buildKeyName(keynum);
+
+		HashSet<String> fields=buildReadFields();
+
+		db.read(table,keyname,fields,new HashMap<String,String>());
+	}
+	
+	public void doTransactionReadModifyWrite(DB db)
+	{
+		//choose a random key
+		doTransactionReadModifyWrite(db,nextKeynum());
+	}
+	
+	public void doTransactionReadModifyWrite(DB db, long keynum)
+	{
+		String keyname=buildKeyName(keynum);
+
+		HashSet<String> fields=buildReadFields();
+		
+		HashMap<String,String> values=buildUpdateValues();
 
 		//do the transaction
 		
 		long st=System.currentTimeMillis();
 
-		db.read(TABLENAME,keyname,fields,new HashMap<String,String>());
+		db.read(table,keyname,fields,new HashMap<String,String>());
 		
-		db.update(TABLENAME,keyname,values);
+		db.update(table,keyname,values);
 
 		long en=System.currentTimeMillis();
 		
@@ -474,92 +1034,138 @@ public class CoreWorkload extends Workload
 	public void doTransactionScan(DB db)
 	{
 		//choose a random key
-		int keynum;
-		do
-		{
-			keynum=keychooser.nextInt();
-		}
-		while (keynum>transactioninsertkeysequence.lastInt());
-
-		if (!orderedinserts)
-		{
-			keynum=Utils.hash(keynum);
-		}
-		String startkeyname="user"+keynum;
+		doTransactionScan(db,nextKeynum());
+	}
+	
+	public void doTransactionScan(DB db, long keynum)
+	{
+		String startkeyname=buildKeyName(keynum);
 		
 		//choose a random scan length
 		int len=scanlength.nextInt();
 
-		HashSet<String> fields=null;
+		HashSet<String> fields=buildReadFields();
 
-		if (!readallfields)
-		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
-		}
-
-		db.scan(TABLENAME,startkeyname,len,fields,new Vector<HashMap<String,String>>());
+		db.scan(table,startkeyname,len,fields,new Vector<HashMap<String,String>>());
 	}
 
 	public void doTransactionUpdate(DB db)
 	{
 		//choose a random key
-		int keynum;
-		do
-		{
-			keynum=keychooser.nextInt();
-		}
-		while (keynum>transactioninsertkeysequence.lastInt());
+		doTransactionUpdate(db,nextKeynum());
+	}
+	
+	public void doTransactionUpdate(DB db, long keynum)
+	{
+		String keyname=buildKeyName(keynum);
 
-		if (!orderedinserts)
-		{
-			keynum=Utils.hash(keynum);
-		}
-		String keyname="user"+keynum;
+		HashMap<String,String> values=buildUpdateValues();
 
-		HashMap<String,String> values=new HashMap<String,String>();
+		db.update(table,keyname,values);
+	}
 
-		if (writeallfields)
+	public void doTransactionInsert(DB db)
+	{
+		//choose the next key
+		long keynum=transactioninsertkeysequence.nextLong();
+		String dbkey=buildKeyName(keynum);
+		
+		HashMap<String,String> values=new HashMap<String,String>();
+		for (int i=0; i<fieldcount; i++)
 		{
-		   //new data for all the fields
-		   for (int i=0; i<fieldcount; i++)
-		   {
-		      String fieldname="field"+i;
-		      String data=Utils.ASCIIString(fieldlength);		   
-		      values.put(fieldname,data);
-		   }
+			String fieldkey="field"+i;
+			String data=Utils.ASCIIString(fieldlength);
+			values.put(fieldkey,data);
 		}
-		else
+		try
 		{
-		   //update a random field
-		   String fieldname="field"+fieldchooser.nextString();
-		   String data=Utils.ASCIIString(fieldlength);		   
-		   values.put(fieldname,data);
+			db.insert(table,dbkey,values);
+		}
+		finally
+		{
+			//acknowledge even a failed insert, or no key past this one would ever become readable
+			transactioninsertkeysequence.acknowledge(keynum);
 		}
+	}
 
-		db.update(TABLENAME,keyname,values);
+	public void doTransactionDelete(DB db)
+	{
+		//take the oldest live key out of the live range before deleting it, so no reader chooses it
+		//afterwards. Always leave at least one live record.
+		long keynum;
+		do
+		{
+			keynum=oldestlivekey.get();
+			if (keynum>=transactioninsertkeysequence.lastLong())
+			{
+				return;
+			}
+		}
+		while (!oldestlivekey.compareAndSet(keynum,keynum+1));
+		
+		String dbkey=buildKeyName(keynum);
+		db.delete(table,dbkey);
 	}
 
-	public void doTransactionInsert(DB db)
+	public void doTransactionMultiReadModifyWrite(DB db)
 	{
-		//choose the next key
-		int keynum=transactioninsertkeysequence.nextInt();
-		if (!orderedinserts)
+		//choose a group of related keys
+		long[] keynums=nextKeynumGroup();
+		if (keybands)
 		{
-			keynum=Utils.hash(keynum);
+			//the records of a group have different popularities, so the group's operations are not measured by band
+			measurements.setKeyRank(-1,0);
 		}
-		String dbkey="user"+keynum;
 		
-		HashMap<String,String> values=new HashMap<String,String>();
-		for (int i=0; i<fieldcount; i++)
+		String[] keynames=new String[keynums.length];
+		for (int i=0; i<keynums.length; i++)
 		{
-			String fieldkey="field"+i;
-			String data=Utils.ASCIIString(fieldlength);
-			values.put(fieldkey,data);
+			keynames[i]=buildKeyName(keynums[i]);
 		}
-		db.insert(TABLENAME,dbkey,values);
+		
+		HashSet<String> fields=buildReadFields();
+		
+		Vector<HashMap<String,String>> values=new Vector<HashMap<String,String>>(keynums.length);
+		for (int i=0; i<keynums.length; i++)
+		{
+			values.add(buildUpdateValues());
+		}
+		
+		//do the transaction: read every record, then update every record
+		
+		long st=System.currentTimeMillis();
+		
+		int res=0;
+		if (multikeytransactional)
+		{
+			res=db.beginTransaction();
+		}
+		
+		for (int i=0; (i<keynames.length) && (res==0); i++)
+		{
+			res=db.read(table,keynames[i],fields,new HashMap<String,String>());
+		}
+		
+		for (int i=0; (i<keynames.length) && (res==0); i++)
+		{
+			res=db.update(table,keynames[i],values.get(i));
+		}
+		
+		if (multikeytransactional)
+		{
+			if (res==0)
+			{
+				res=db.commitTransaction();
+			}
+			else
+			{
+				db.abortTransaction();
+			}
+		}
+		
+		long en=System.currentTimeMillis();
+		
+		Measurements.getMeasurements().measure("MULTI-READ-MODIFY-WRITE", (int)(en-st));
+		Measurements.getMeasurements().reportReturnCode("MULTI-READ-MODIFY-WRITE", res);
 	}
 }
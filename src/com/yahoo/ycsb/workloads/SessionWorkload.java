@@ -0,0 +1,320 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Random;
+
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.ExponentialGenerator;
+import com.yahoo.ycsb.generator.IntegerGenerator;
+import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+
+/**
+ * A closed-system scenario of user sessions. Each user logs in with a read of its own record, then issues a number
+ * of requests with a think time between them, and then starts a new session as a different user. A user's requests 
+ * go to records related to its own record with probability sessionaffinity, and otherwise to records chosen by the 
+ * request distribution. The operations of requests after the login, the records and the request distribution are 
+ * controlled by the CoreWorkload properties; related records are the records of the multikeygroupsize group of the
+ * user's own record.
+ * 
+ * Each client thread serves sessioncount/threadcount sessions, issuing the request of whichever session is due next
+ * and sleeping while none is, so a small number of threads can simulate a large number of concurrent users. Every
+ * request is one operation towards operationcount. A user's next request is due one think time after its previous
+ * request completed; if a thread falls behind, requests are issued late rather than dropped, and the user keeps
+ * waiting for its previous request, as in a closed system.
+ * 
+ * Properties to control the client, in addition to those of CoreWorkload:
+ * <UL>
+ * <LI><b>sessioncount</b>: the number of concurrent sessions, over all client threads (default: 100)
+ * <LI><b>sessionlengthmin</b>: the minimum number of requests of a session after the login (default: 5)
+ * <LI><b>sessionlengthmax</b>: the maximum number of requests of a session after the login (default: 20)
+ * <LI><b>thinktime</b>: the mean time between the completion of a request and the next request of the same session, in milliseconds (default: 1000)
+ * <LI><b>thinktimedistribution</b>: the distribution of think times - exponential, uniform (between 0 and twice the mean) or constant (default: exponential)
+ * <LI><b>sessionaffinity</b>: the probability that a request goes to a record related to the user's own record (default: 0.8)
+ * </UL>
+ */
+public class SessionWorkload extends CoreWorkload
+{
+	/**
+	 * The name of the property for the number of concurrent sessions.
+	 */
+	public static final String SESSION_COUNT_PROPERTY="sessioncount";
+	
+	/**
+	 * The default number of concurrent sessions.
+	 */
+	public static final String SESSION_COUNT_PROPERTY_DEFAULT="100";
+	
+	/**
+	 * The name of the property for the minimum number of requests of a session.
+	 */
+	public static final String SESSION_LENGTH_MIN_PROPERTY="sessionlengthmin";
+	
+	/**
+	 * The default minimum number of requests of a session.
+	 */
+	public static final String SESSION_LENGTH_MIN_PROPERTY_DEFAULT="5";
+	
+	/**
+	 * The name of the property for the maximum number of requests of a session.
+	 */
+	public static final String SESSION_LENGTH_MAX_PROPERTY="sessionlengthmax";
+	
+	/**
+	 * The default maximum number of requests of a session.
+	 */
+	public static final String SESSION_LENGTH_MAX_PROPERTY_DEFAULT="20";
+	
+	/**
+	 * The name of the property for the mean think time, in milliseconds.
+	 */
+	public static final String THINK_TIME_PROPERTY="thinktime";
+	
+	/**
+	 * The default mean think time.
+	 */
+	public static final String THINK_TIME_PROPERTY_DEFAULT="1000";
+	
+	/**
+	 * The name of the property for the distribution of think times. Options are "exponential", "uniform" and "constant".
+	 */
+	public static final String THINK_TIME_DISTRIBUTION_PROPERTY="thinktimedistribution";
+	
+	/**
+	 * The default distribution of think times.
+	 */
+	public static final String THINK_TIME_DISTRIBUTION_PROPERTY_DEFAULT="exponential";
+	
+	/**
+	 * The name of the property for the probability that a request goes to a related record.
+	 */
+	public static final String SESSION_AFFINITY_PROPERTY="sessionaffinity";
+	
+	/**
+	 * The default probability that a request goes to a related record.
+	 */
+	public static final String SESSION_AFFINITY_PROPERTY_DEFAULT="0.8";
+	
+	long sessioncount;
+	
+	IntegerGenerator sessionlength;
+	
+	IntegerGenerator thinktime;
+	
+	double sessionaffinity;
+	
+	/**
+	 * One user session: the user's own record, the requests left, and when the next request is due.
+	 */
+	static class Session implements Comparable<Session>
+	{
+		long _home;
+		int _remaining;
+		long _due;
+		
+		public int compareTo(Session other)
+		{
+			return _due<other._due ? -1 : (_due>other._due ? 1 : 0);
+		}
+	}
+	
+	/**
+	 * The sessions of one client thread, the one due first at the head.
+	 */
+	static class ThreadState
+	{
+		PriorityQueue<Session> _sessions=new PriorityQueue<Session>();
+		Random _random=Utils.newRandom();
+	}
+	
+	/**
+	 * Initialize the scenario. 
+	 * Called once, in the main client thread, before any operations are started.
+	 */
+	public void init(Properties p) throws WorkloadException
+	{
+		super.init(p);
+		
+		sessioncount=Long.parseLong(p.getProperty(SESSION_COUNT_PROPERTY,SESSION_COUNT_PROPERTY_DEFAULT));
+		
+		int sessionlengthmin=Integer.parseInt(p.getProperty(SESSION_LENGTH_MIN_PROPERTY,SESSION_LENGTH_MIN_PROPERTY_DEFAULT));
+		int sessionlengthmax=Integer.parseInt(p.getProperty(SESSION_LENGTH_MAX_PROPERTY,SESSION_LENGTH_MAX_PROPERTY_DEFAULT));
+		if ( (sessionlengthmin<0) || (sessionlengthmax<sessionlengthmin) )
+		{
+			throw new WorkloadException("Invalid session length range "+sessionlengthmin+".."+sessionlengthmax);
+		}
+		sessionlength=new UniformIntegerGenerator(sessionlengthmin,sessionlengthmax);
+		
+		long meanthinktime=Long.parseLong(p.getProperty(THINK_TIME_PROPERTY,THINK_TIME_PROPERTY_DEFAULT));
+		String thinktimedistribution=p.getProperty(THINK_TIME_DISTRIBUTION_PROPERTY,THINK_TIME_DISTRIBUTION_PROPERTY_DEFAULT);
+		if (thinktimedistribution.compareTo("exponential")==0)
+		{
+			thinktime=new ExponentialGenerator(meanthinktime);
+		}
+		else if (thinktimedistribution.compareTo("uniform")==0)
+		{
+			thinktime=new UniformIntegerGenerator(0,2*meanthinktime);
+		}
+		else if (thinktimedistribution.compareTo("constant")==0)
+		{
+			thinktime=new UniformIntegerGenerator(meanthinktime,meanthinktime);
+		}
+		else
+		{
+			throw new WorkloadException("Unknown think time distribution \""+thinktimedistribution+"\"");
+		}
+		
+		sessionaffinity=Double.parseDouble(p.getProperty(SESSION_AFFINITY_PROPERTY,SESSION_AFFINITY_PROPERTY_DEFAULT));
+	}
+	
+	/**
+	 * Create the sessions of one client thread. Their first logins are spread over one think time, so that the
+	 * users do not all arrive at once.
+	 */
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		ThreadState state=new ThreadState();
+		
+		long mysessions=sessioncount/threadcount;
+		if (mythreadid<sessioncount%threadcount)
+		{
+			mysessions++;
+		}
+		
+		long now=System.currentTimeMillis();
+		for (long i=0; i<mysessions; i++)
+		{
+			Session session=new Session();
+			session._due=now+thinktime.nextLong();
+			state._sessions.add(session);
+		}
+		return state;
+	}
+	
+	/**
+	 * Issue the next request of the session that is due first, sleeping until it is due.
+	 */
+	public boolean doTransaction(DB db, Object threadstate)
+	{
+		ThreadState state=(ThreadState)threadstate;
+		Session session=state._sessions.poll();
+		
+		if (keybands)
+		{
+			//only operations on a key chosen by popularity are measured by band, not the ones on a session's related keys
+			measurements.setKeyRank(-1,0);
+		}
+		if (session==null)
+		{
+			//this thread has no sessions
+			return false;
+		}
+		
+		long wait=session._due-System.currentTimeMillis();
+		if (wait>0)
+		{
+			try
+			{
+				Thread.sleep(wait);
+			}
+			catch (InterruptedException e)
+			{
+				//do nothing
+			}
+		}
+		
+		if (!hasLiveKeys())
+		{
+			//there is no key to log in with yet, e.g. when starting with no records, so insert one instead
+			doTransactionInsert(db);
+		}
+		else if (session._remaining==0)
+		{
+			//a new user logs in
+			session._home=nextKeynum();
+			session._remaining=sessionlength.nextInt();
+			doTransactionRead(db,session._home);
+		}
+		else
+		{
+			session._remaining--;
+			doSessionRequest(db,state,session);
+		}
+		
+		session._due=System.currentTimeMillis()+thinktime.nextLong();
+		state._sessions.add(session);
+		
+		return true;
+	}
+	
+	/**
+	 * Issue one request of a session after the login.
+	 */
+	void doSessionRequest(DB db, ThreadState state, Session session)
+	{
+		String op=chooseOperationGenerator().nextString();
+		
+		if (op.compareTo("INSERT")==0)
+		{
+			doTransactionInsert(db);
+			return;
+		}
+		else if (op.compareTo("DELETE")==0)
+		{
+			doTransactionDelete(db);
+			return;
+		}
+		else if (op.compareTo("MULTIREADMODIFYWRITE")==0)
+		{
+			doTransactionMultiReadModifyWrite(db);
+			return;
+		}
+		
+		long keynum;
+		if (state._random.nextDouble()<sessionaffinity)
+		{
+			long groupstart=session._home-(session._home%multikeygroupsize);
+			keynum=liveKeynum(groupstart+multikeygroupmember.nextInt());
+		}
+		else
+		{
+			keynum=nextKeynum();
+		}
+		
+		if (op.compareTo("READ")==0)
+		{
+			doTransactionRead(db,keynum);
+		}
+		else if (op.compareTo("UPDATE")==0)
+		{
+			doTransactionUpdate(db,keynum);
+		}
+		else if (op.compareTo("SCAN")==0)
+		{
+			doTransactionScan(db,keynum);
+		}
+		else
+		{
+			doTransactionReadModifyWrite(db,keynum);
+		}
+	}
+}
@@ -0,0 +1,502 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Vector;
+
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.AcknowledgedCounterGenerator;
+import com.yahoo.ycsb.generator.CounterGenerator;
+import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
+import com.yahoo.ycsb.generator.IntegerGenerator;
+import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+
+/**
+ * A time series ingestion scenario. A set of series each report one point per timestamp interval, and the
+ * points are keyed by (series, timestamp), so that the points of one series are contiguous and in time order.
+ * Points are inserted mostly in time order, with a fraction of them arriving late by a bounded amount, and
+ * reads ask for the points of one series over a recent window of time.
+ * 
+ * The points are numbered in time order, interleaving the series: point n belongs to series n % seriescount, at 
+ * timestamp timestampstart + (n / seriescount) * timestampinterval. The load phase inserts points 0 to recordcount-1
+ * in order, and the transaction phase continues from recordcount, with late points.
+ * 
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>table</b>: the name of the database table to run queries against (default: usertable)
+ * <LI><b>seriescount</b>: the number of series (default: 1000)
+ * <LI><b>timestampinterval</b>: the time between two points of a series, in milliseconds (default: 1000)
+ * <LI><b>timestampstart</b>: the timestamp of the first point, in milliseconds (default: 0)
+ * <LI><b>fieldcount</b>: the number of fields in a point (default: 1)
+ * <LI><b>fieldlength</b>: the size of each field (default: 16)
+ * <LI><b>latefraction</b>: what fraction of points arrive late (default: 0)
+ * <LI><b>latenessmax</b>: the maximum time by which a late point trails the newest point, in milliseconds. Each late point is delayed by a uniformly chosen time up to this bound (default: 60000)
+ * <LI><b>insertproportion</b>: what proportion of operations should be inserts of new points (default: 0.9)
+ * <LI><b>scanproportion</b>: what proportion of operations should be scans of a recent window of one series (default: 0.1)
+ * <LI><b>readproportion</b>: what proportion of operations should be reads of the newest point of one series (default: 0)
+ * <LI><b>scanwindowmin</b>: the minimum length of the window of a scan, in milliseconds (default: 60000)
+ * <LI><b>scanwindowmax</b>: the maximum length of the window of a scan, in milliseconds (default: 600000)
+ * <LI><b>requestdistribution</b>: what distribution should be used to select the series to read - uniform, zipfian or hotspot (default: uniform)
+ * </ul>
+ * 
+ * Late points are held back by the client thread that generated them, so points that are still held back
+ * when the run ends are never inserted. Reads and scans only go up to the newest point that has been inserted 
+ * along with every point before it, so they never ask for points that are still in flight or held back, and 
+ * trail the newest inserts by about the lateness bound.
+ */
+public class TimeSeriesWorkload extends Workload
+{
+	/**
+	 * The name of the property for the number of series.
+	 */
+	public static final String SERIES_COUNT_PROPERTY="seriescount";
+	
+	/**
+	 * The default number of series.
+	 */
+	public static final String SERIES_COUNT_PROPERTY_DEFAULT="1000";
+	
+	/**
+	 * The name of the property for the time between two points of a series, in milliseconds.
+	 */
+	public static final String TIMESTAMP_INTERVAL_PROPERTY="timestampinterval";
+	
+	/**
+	 * The default time between two points of a series.
+	 */
+	public static final String TIMESTAMP_INTERVAL_PROPERTY_DEFAULT="1000";
+	
+	/**
+	 * The name of the property for the timestamp of the first point, in milliseconds.
+	 */
+	public static final String TIMESTAMP_START_PROPERTY="timestampstart";
+	
+	/**
+	 * The default timestamp of the first point.
+	 */
+	public static final String TIMESTAMP_START_PROPERTY_DEFAULT="0";
+	
+	/**
+	 * The default number of fields in a point.
+	 */
+	public static final String FIELD_COUNT_PROPERTY_DEFAULT="1";
+	
+	/**
+	 * The default size of each field.
+	 */
+	public static final String FIELD_LENGTH_PROPERTY_DEFAULT="16";
+	
+	/**
+	 * The name of the property for the fraction of points that arrive late.
+	 */
+	public static final String LATE_FRACTION_PROPERTY="latefraction";
+	
+	/**
+	 * The default fraction of points that arrive late.
+	 */
+	public static final String LATE_FRACTION_PROPERTY_DEFAULT="0";
+	
+	/**
+	 * The name of the property for the maximum lateness of a point, in milliseconds.
+	 */
+	public static final String LATENESS_MAX_PROPERTY="latenessmax";
+	
+	/**
+	 * The default maximum lateness of a point.
+	 */
+	public static final String LATENESS_MAX_PROPERTY_DEFAULT="60000";
+	
+	/**
+	 * The default proportion of transactions that are inserts.
+	 */
+	public static final String INSERT_PROPORTION_PROPERTY_DEFAULT="0.9";
+	
+	/**
+	 * The default proportion of transactions that are scans.
+	 */
+	public static final String SCAN_PROPORTION_PROPERTY_DEFAULT="0.1";
+	
+	/**
+	 * The default proportion of transactions that are reads.
+	 */
+	public static final String READ_PROPORTION_PROPERTY_DEFAULT="0";
+	
+	/**
+	 * The name of the property for the minimum length of the window of a scan, in milliseconds.
+	 */
+	public static final String SCAN_WINDOW_MIN_PROPERTY="scanwindowmin";
+	
+	/**
+	 * The default minimum length of the window of a scan.
+	 */
+	public static final String SCAN_WINDOW_MIN_PROPERTY_DEFAULT="60000";
+	
+	/**
+	 * The name of the property for the maximum length of the window of a scan, in milliseconds.
+	 */
+	public static final String SCAN_WINDOW_MAX_PROPERTY="scanwindowmax";
+	
+	/**
+	 * The default maximum length of the window of a scan.
+	 */
+	public static final String SCAN_WINDOW_MAX_PROPERTY_DEFAULT="600000";
+	
+	/**
+	 * The default distribution of the series to read.
+	 */
+	public static final String REQUEST_DISTRIBUTION_PROPERTY_DEFAULT="uniform";
+	
+	/**
+	 * The number of digits in the timestamp part of a key, enough for any non-negative long.
+	 */
+	static final int TIMESTAMP_DIGITS=19;
+	
+	String table;
+	
+	long seriescount;
+	
+	long timestampinterval;
+	
+	long timestampstart;
+	
+	int fieldcount;
+	
+	int fieldlength;
+	
+	double latefraction;
+	
+	/**
+	 * The maximum lateness, as a number of points.
+	 */
+	long maxdelay;
+	
+	int seriesdigits;
+	
+	CounterGenerator keysequence;
+	
+	/**
+	 * The points of the transaction phase. Its limit is the newest point that has been inserted along with every 
+	 * point before it.
+	 */
+	AcknowledgedCounterGenerator transactioninsertkeysequence;
+	
+	DiscreteGenerator operationchooser;
+	
+	IntegerGenerator serieschooser;
+	
+	IntegerGenerator windowchooser;
+	
+	/**
+	 * A point held back by a client thread, and the point number after which it is inserted.
+	 */
+	static class LatePoint implements Comparable<LatePoint>
+	{
+		long _pointnum;
+		long _due;
+		
+		LatePoint(long pointnum, long due)
+		{
+			_pointnum=pointnum;
+			_due=due;
+		}
+		
+		public int compareTo(LatePoint other)
+		{
+			return _due<other._due ? -1 : (_due>other._due ? 1 : 0);
+		}
+	}
+	
+	/**
+	 * The state of one client thread: the points it holds back, earliest due first.
+	 */
+	static class ThreadState
+	{
+		PriorityQueue<LatePoint> _late=new PriorityQueue<LatePoint>();
+		Random _random=Utils.newRandom();
+	}
+	
+	/**
+	 * Initialize the scenario. 
+	 * Called once, in the main client thread, before any operations are started.
+	 */
+	public void init(Properties p) throws WorkloadException
+	{
+		table=p.getProperty(CoreWorkload.TABLENAME_PROPERTY,CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+		seriescount=Long.parseLong(p.getProperty(SERIES_COUNT_PROPERTY,SERIES_COUNT_PROPERTY_DEFAULT));
+		timestampinterval=Long.parseLong(p.getProperty(TIMESTAMP_INTERVAL_PROPERTY,TIMESTAMP_INTERVAL_PROPERTY_DEFAULT));
+		timestampstart=Long.parseLong(p.getProperty(TIMESTAMP_START_PROPERTY,TIMESTAMP_START_PROPERTY_DEFAULT));
+		if ( (seriescount<1) || (timestampinterval<1) || (timestampstart<0) )
+		{
+			throw new WorkloadException("seriescount and timestampinterval must be positive, and timestampstart must not be negative");
+		}
+		seriesdigits=Long.toString(seriescount-1).length();
+		
+		fieldcount=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_COUNT_PROPERTY,FIELD_COUNT_PROPERTY_DEFAULT));
+		fieldlength=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_LENGTH_PROPERTY,FIELD_LENGTH_PROPERTY_DEFAULT));
+		
+		latefraction=Double.parseDouble(p.getProperty(LATE_FRACTION_PROPERTY,LATE_FRACTION_PROPERTY_DEFAULT));
+		long latenessmax=Long.parseLong(p.getProperty(LATENESS_MAX_PROPERTY,LATENESS_MAX_PROPERTY_DEFAULT));
+		maxdelay=(latenessmax/timestampinterval)*seriescount;
+		if (maxdelay<1)
+		{
+			latefraction=0;
+		}
+		
+		long recordcount=Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY));
+		long insertstart=Long.parseLong(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT));
+		keysequence=new CounterGenerator(insertstart);
+		transactioninsertkeysequence=new AcknowledgedCounterGenerator(recordcount);
+		
+		double insertproportion=Double.parseDouble(p.getProperty(CoreWorkload.INSERT_PROPORTION_PROPERTY,INSERT_PROPORTION_PROPERTY_DEFAULT));
+		double scanproportion=Double.parseDouble(p.getProperty(CoreWorkload.SCAN_PROPORTION_PROPERTY,SCAN_PROPORTION_PROPERTY_DEFAULT));
+		double readproportion=Double.parseDouble(p.getProperty(CoreWorkload.READ_PROPORTION_PROPERTY,READ_PROPORTION_PROPERTY_DEFAULT));
+		
+		operationchooser=new DiscreteGenerator();
+		if (insertproportion>0)
+		{
+			operationchooser.addValue(insertproportion,"INSERT");
+		}
+		
+		if (scanproportion>0)
+		{
+			operationchooser.addValue(scanproportion,"SCAN");
+		}
+		
+		if (readproportion>0)
+		{
+			operationchooser.addValue(readproportion,"READ");
+		}
+		
+		String requestdistrib=p.getProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY,REQUEST_DISTRIBUTION_PROPERTY_DEFAULT);
+		if (requestdistrib.compareTo("uniform")==0)
+		{
+			serieschooser=new UniformIntegerGenerator(0,seriescount-1);
+		}
+		else if (requestdistrib.compareTo("zipfian")==0)
+		{
+			serieschooser=new ScrambledZipfianGenerator(seriescount);
+		}
+		else if (requestdistrib.compareTo("hotspot")==0)
+		{
+			double hotsetfraction=Double.parseDouble(p.getProperty(CoreWorkload.HOTSPOT_DATA_FRACTION_PROPERTY,CoreWorkload.HOTSPOT_DATA_FRACTION_PROPERTY_DEFAULT));
+			double hotopnfraction=Double.parseDouble(p.getProperty(CoreWorkload.HOTSPOT_OPN_FRACTION_PROPERTY,CoreWorkload.HOTSPOT_OPN_FRACTION_PROPERTY_DEFAULT));
+			try
+			{
+				serieschooser=new HotspotIntegerGenerator(0,seriescount-1,hotsetfraction,hotopnfraction);
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new WorkloadException(e.getMessage());
+			}
+		}
+		else
+		{
+			throw new WorkloadException("Unknown request distribution \""+requestdistrib+"\"");
+		}
+		
+		long scanwindowmin=Long.parseLong(p.getProperty(SCAN_WINDOW_MIN_PROPERTY,SCAN_WINDOW_MIN_PROPERTY_DEFAULT));
+		long scanwindowmax=Long.parseLong(p.getProperty(SCAN_WINDOW_MAX_PROPERTY,SCAN_WINDOW_MAX_PROPERTY_DEFAULT));
+		if ( (scanwindowmin<timestampinterval) || (scanwindowmax<scanwindowmin) )
+		{
+			throw new WorkloadException("Invalid scan window range "+scanwindowmin+".."+scanwindowmax+"; windows must span at least one timestampinterval");
+		}
+		windowchooser=new UniformIntegerGenerator(scanwindowmin,scanwindowmax);
+	}
+	
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		return new ThreadState();
+	}
+	
+	/**
+	 * Build the key of a point: the zero-padded series number and the zero-padded timestamp, so that keys sort by series, then by time.
+	 */
+	public String buildKeyName(long series, long timestamp)
+	{
+		StringBuilder key=new StringBuilder(7+seriesdigits+TIMESTAMP_DIGITS);
+		key.append("series");
+		pad(key,series,seriesdigits);
+		key.append(':');
+		pad(key,timestamp,TIMESTAMP_DIGITS);
+		return key.toString();
+	}
+	
+	/**
+	 * Build the key of point number pointnum.
+	 */
+	String buildPointKeyName(long pointnum)
+	{
+		return buildKeyName(pointnum%seriescount,timestampstart+(pointnum/seriescount)*timestampinterval);
+	}
+	
+	static void pad(StringBuilder buf, long value, int digits)
+	{
+		String s=Long.toString(value);
+		for (int i=s.length(); i<digits; i++)
+		{
+			buf.append('0');
+		}
+		buf.append(s);
+	}
+	
+	HashMap<String,String> buildValues()
+	{
+		HashMap<String,String> values=new HashMap<String,String>();
+		for (int i=0; i<fieldcount; i++)
+		{
+			String fieldkey="field"+i;
+			String data=Utils.ASCIIString(fieldlength);
+			values.put(fieldkey,data);
+		}
+		return values;
+	}
+	
+	/**
+	 * Choose the next point this thread inserts. A point that falls due is inserted first; otherwise a new point
+	 * is taken from the sequence, and each new point is held back with probability latefraction, until the sequence
+	 * has moved past it by a random delay. A thread holds back at most maxdelay points, which bounds the lateness
+	 * even when latefraction is close to 1.
+	 */
+	long nextPointnum(ThreadState state, AcknowledgedCounterGenerator sequence)
+	{
+		LatePoint head=state._late.peek();
+		//due is measured against the points handed out, since a held back point keeps the acknowledged limit below it
+		if ( (head!=null) && (head._due<=sequence.lastIssued()) )
+		{
+			return state._late.poll()._pointnum;
+		}
+		
+		while (true)
+		{
+			long pointnum=sequence.nextLong();
+			if ( (latefraction==0) || (state._late.size()>=maxdelay) || (state._random.nextDouble()>=latefraction) )
+			{
+				return pointnum;
+			}
+			state._late.add(new LatePoint(pointnum,pointnum+1+Utils.nextLong(state._random,maxdelay)));
+		}
+	}
+	
+	/**
+	 * Insert one point, for the load phase. The history is loaded in time order, without late points.
+	 */
+	public boolean doInsert(DB db, Object threadstate)
+	{
+		long pointnum=keysequence.nextLong();
+		db.insert(table,buildPointKeyName(pointnum),buildValues());
+		return true;
+	}
+	
+	/**
+	 * Do one transaction operation: insert a new point, scan a recent window of a series, or read the newest point of a series.
+	 */
+	public boolean doTransaction(DB db, Object threadstate)
+	{
+		String op=operationchooser.nextString();
+		
+		//there is nothing to read until a point has been inserted, when the load phase inserted none
+		if ( (op.compareTo("INSERT")==0) || (transactioninsertkeysequence.lastLong()<0) )
+		{
+			doTransactionInsert(db,(ThreadState)threadstate);
+		}
+		else if (op.compareTo("SCAN")==0)
+		{
+			doTransactionScan(db);
+		}
+		else
+		{
+			doTransactionRead(db);
+		}
+		
+		return true;
+	}
+	
+	public void doTransactionInsert(DB db, ThreadState state)
+	{
+		long pointnum=nextPointnum(state,transactioninsertkeysequence);
+		try
+		{
+			db.insert(table,buildPointKeyName(pointnum),buildValues());
+		}
+		finally
+		{
+			//acknowledge even a failed insert, or no point past this one would ever be read
+			transactioninsertkeysequence.acknowledge(pointnum);
+		}
+	}
+	
+	/**
+	 * Choose the series to read. Until every series has a point, only the series that have one are chosen.
+	 */
+	long nextSeries()
+	{
+		long series=serieschooser.nextLong();
+		long newest=transactioninsertkeysequence.lastLong();
+		if (newest<seriescount-1)
+		{
+			series=series%(newest+1);
+		}
+		return series;
+	}
+	
+	/**
+	 * Return the number of the newest timestamp interval of a series that has been inserted, along with every
+	 * point before it.
+	 */
+	long newestStep(long series)
+	{
+		long newest=transactioninsertkeysequence.lastLong();
+		long step=newest/seriescount;
+		if (series>newest%seriescount)
+		{
+			step--;
+		}
+		return step;
+	}
+	
+	public void doTransactionScan(DB db)
+	{
+		long series=nextSeries();
+		long steps=windowchooser.nextLong()/timestampinterval;
+		long first=Math.max(0,newestStep(series)-steps+1);
+		
+		String startkey=buildKeyName(series,timestampstart+first*timestampinterval);
+		
+		db.scan(table,startkey,(int)Math.min(steps,Integer.MAX_VALUE),null,new Vector<HashMap<String,String>>());
+	}
+	
+	public void doTransactionRead(DB db)
+	{
+		long series=nextSeries();
+		long step=Math.max(0,newestStep(series));
+		
+		String key=buildKeyName(series,timestampstart+step*timestampinterval);
+		
+		db.read(table,key,null,new HashMap<String,String>());
+	}
+}
@@ -0,0 +1,452 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.trace.TraceFormat;
+import com.yahoo.ycsb.trace.TraceReader;
+import com.yahoo.ycsb.trace.TraceRecord;
+
+/**
+ * Replays the operations of a recorded access trace, in the binary format written by 
+ * com.yahoo.ycsb.trace.TraceConverter, or recorded from another run with the recordfile property (see RecordingDB).
+ * Each operation of the trace is replayed once, with values of the recorded
+ * sizes, and a thread stops when it reaches the end of its part of the trace; set operationcount to 0 to replay the
+ * whole trace. The same trace can be replayed by the load phase, for traces that start by inserting their records.
+ * 
+ * The trace files are divided among all the threads of all the client processes replaying them, round robin, so that
+ * each thread reads and decodes only its own files. A trace recorded by a run is made of one file per thread, so each
+ * thread then replays the operations of one recorded thread, in the order they were issued. A trace with fewer files
+ * than threads can instead be divided by a hash of the key, so that all the operations on one key are replayed by the
+ * same thread, in trace order; every thread then reads every record of every file and skips the ones of other threads,
+ * so replay costs more client CPU as the number of threads grows. Either division only depends on the number of
+ * clients and threads, so a replay can be repeated exactly.
+ * 
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>tracefile</b>: the trace file to replay, or a comma separated list of trace files (required)
+ * <LI><b>tracepartition</b>: file, to give each thread whole files, round robin, or hash, to divide the operations of 
+ * each file among the threads by key (default: file)
+ * <LI><b>tracereplay</b>: fast, to replay operations as fast as the database allows, or timestamp, to replay each 
+ * operation at its recorded time relative to the earliest operation of the trace files (default: fast). Operations without
+ * a timestamp are replayed immediately.
+ * <LI><b>tracespeedup</b>: in timestamp replay, how many times faster than recorded to replay the trace (default: 1)
+ * <LI><b>traceclients</b>: the number of client processes replaying the trace, each with the same number of threads (default: 1)
+ * <LI><b>traceclientindex</b>: the index of this client process, from 0 to traceclients-1 (default: 0)
+ * <LI><b>table</b>: the name of the database table to run queries against (default: usertable)
+ * </ul>
+ * 
+ * Timestamp replay is paced from the moment the first operation of any thread is replayed. Threads of several
+ * client processes are only as synchronized as the processes are started.
+ */
+public class TraceWorkload extends Workload
+{
+	/**
+	 * The name of the property for the trace file.
+	 */
+	public static final String TRACE_FILE_PROPERTY="tracefile";
+	
+	/**
+	 * The name of the property for how to divide the trace among threads: hash or file.
+	 */
+	public static final String TRACE_PARTITION_PROPERTY="tracepartition";
+	
+	/**
+	 * The default way to divide the trace among threads.
+	 */
+	public static final String TRACE_PARTITION_PROPERTY_DEFAULT="file";
+	
+	/**
+	 * The name of the property for the replay mode: fast or timestamp.
+	 */
+	public static final String TRACE_REPLAY_PROPERTY="tracereplay";
+	
+	/**
+	 * The default replay mode.
+	 */
+	public static final String TRACE_REPLAY_PROPERTY_DEFAULT="fast";
+	
+	/**
+	 * The name of the property for the speedup of timestamp replay.
+	 */
+	public static final String TRACE_SPEEDUP_PROPERTY="tracespeedup";
+	
+	/**
+	 * The default speedup of timestamp replay.
+	 */
+	public static final String TRACE_SPEEDUP_PROPERTY_DEFAULT="1.0";
+	
+	/**
+	 * The name of the property for the number of client processes replaying the trace.
+	 */
+	public static final String TRACE_CLIENTS_PROPERTY="traceclients";
+	
+	/**
+	 * The default number of client processes replaying the trace.
+	 */
+	public static final String TRACE_CLIENTS_PROPERTY_DEFAULT="1";
+	
+	/**
+	 * The name of the property for the index of this client process.
+	 */
+	public static final String TRACE_CLIENT_INDEX_PROPERTY="traceclientindex";
+	
+	/**
+	 * The default index of this client process.
+	 */
+	public static final String TRACE_CLIENT_INDEX_PROPERTY_DEFAULT="0";
+	
+	String table;
+	
+	String[] tracefiles;
+	
+	boolean filepartition;
+	
+	boolean timestampreplay;
+	
+	double speedup;
+	
+	int clients;
+	
+	int clientindex;
+	
+	/**
+	 * The earliest timestamp of the trace files, which is replayed at replaystart.
+	 */
+	long traceorigin;
+	
+	/**
+	 * The wall clock time at which the first operation was replayed, or 0 before then.
+	 */
+	AtomicLong replaystart=new AtomicLong(0);
+	
+	Vector<ThreadState> threadstates=new Vector<ThreadState>();
+	
+	/**
+	 * The trace files of one thread, which are replayed one after the other.
+	 */
+	class ThreadState
+	{
+		Vector<String> files=new Vector<String>();
+		int nextfile=0;
+		int partition;
+		int partitions;
+		TraceReader reader;
+		
+		/**
+		 * Values of each size, which are reused since their content does not matter.
+		 */
+		String[] values=new String[0];
+		
+		/**
+		 * Return the next record of the thread, opening its next file when one ends, or null when all have ended.
+		 */
+		TraceRecord next() throws IOException
+		{
+			while (true)
+			{
+				if (reader==null)
+				{
+					if (nextfile==files.size())
+					{
+						return null;
+					}
+					reader=new TraceReader(files.get(nextfile++),partition,partitions);
+				}
+				TraceRecord r=reader.next();
+				if (r!=null)
+				{
+					return r;
+				}
+				close();
+			}
+		}
+		
+		void close() throws IOException
+		{
+			if (reader!=null)
+			{
+				reader.close();
+				reader=null;
+			}
+		}
+		
+		String value(int size)
+		{
+			if (size>=values.length)
+			{
+				String[] newvalues=new String[Math.max(size+1,2*values.length)];
+				System.arraycopy(values,0,newvalues,0,values.length);
+				values=newvalues;
+			}
+			if (values[size]==null)
+			{
+				values[size]=Utils.ASCIIString(size);
+			}
+			return values[size];
+		}
+	}
+	
+	public void init(Properties p) throws WorkloadException
+	{
+		table=p.getProperty(CoreWorkload.TABLENAME_PROPERTY,CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+		
+		String tracefile=p.getProperty(TRACE_FILE_PROPERTY);
+		if (tracefile==null)
+		{
+			throw new WorkloadException("The trace workload requires the "+TRACE_FILE_PROPERTY+" property");
+		}
+		tracefiles=tracefile.split(",");
+		
+		String partition=p.getProperty(TRACE_PARTITION_PROPERTY,TRACE_PARTITION_PROPERTY_DEFAULT);
+		if (partition.compareTo("hash")==0)
+		{
+			filepartition=false;
+		}
+		else if (partition.compareTo("file")==0)
+		{
+			filepartition=true;
+		}
+		else
+		{
+			throw new WorkloadException("Unknown trace partitioning \""+partition+"\"");
+		}
+		
+		String replay=p.getProperty(TRACE_REPLAY_PROPERTY,TRACE_REPLAY_PROPERTY_DEFAULT);
+		if (replay.compareTo("fast")==0)
+		{
+			timestampreplay=false;
+		}
+		else if (replay.compareTo("timestamp")==0)
+		{
+			timestampreplay=true;
+		}
+		else
+		{
+			throw new WorkloadException("Unknown trace replay mode \""+replay+"\"");
+		}
+		
+		speedup=Double.parseDouble(p.getProperty(TRACE_SPEEDUP_PROPERTY,TRACE_SPEEDUP_PROPERTY_DEFAULT));
+		clients=Integer.parseInt(p.getProperty(TRACE_CLIENTS_PROPERTY,TRACE_CLIENTS_PROPERTY_DEFAULT));
+		clientindex=Integer.parseInt(p.getProperty(TRACE_CLIENT_INDEX_PROPERTY,TRACE_CLIENT_INDEX_PROPERTY_DEFAULT));
+		if ( (speedup<=0) || (clients<1) || (clientindex<0) || (clientindex>=clients) )
+		{
+			throw new WorkloadException("tracespeedup and traceclients must be positive, and traceclientindex must be less than traceclients");
+		}
+		
+		//this also checks that the files can be read before any thread starts
+		traceorigin=Long.MAX_VALUE;
+		for (String file : tracefiles)
+		{
+			traceorigin=Math.min(traceorigin,firstTimestamp(file));
+		}
+	}
+	
+	/**
+	 * Return the timestamp of the first record of a trace file that has one, or Long.MAX_VALUE if none has.
+	 */
+	long firstTimestamp(String file) throws WorkloadException
+	{
+		try
+		{
+			TraceReader reader=new TraceReader(file);
+			try
+			{
+				TraceRecord r;
+				while ((r=reader.next())!=null)
+				{
+					if (r.hastimestamp)
+					{
+						return r.timestamp;
+					}
+				}
+				return Long.MAX_VALUE;
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+		catch (IOException e)
+		{
+			throw new WorkloadException("Could not read trace file "+file+": "+e.getMessage());
+		}
+	}
+	
+	/**
+	 * Assign the thread its files, or its partition of each file.
+	 */
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		ThreadState state=new ThreadState();
+		int thread=clientindex*threadcount+mythreadid;
+		int threads=clients*threadcount;
+		if (filepartition)
+		{
+			for (int i=thread; i<tracefiles.length; i+=threads)
+			{
+				state.files.add(tracefiles[i]);
+			}
+			state.partition=0;
+			state.partitions=1;
+			if (state.files.isEmpty())
+			{
+				System.err.println("Thread "+thread+" has no trace file to replay: there are fewer files than threads. Use "+TRACE_PARTITION_PROPERTY+"=hash to divide the files among the threads by key.");
+			}
+		}
+		else
+		{
+			for (String file : tracefiles)
+			{
+				state.files.add(file);
+			}
+			state.partition=thread;
+			state.partitions=threads;
+		}
+		threadstates.add(state);
+		return state;
+	}
+	
+	public void cleanup() throws WorkloadException
+	{
+		for (ThreadState state : threadstates)
+		{
+			try
+			{
+				state.close();
+			}
+			catch (IOException e)
+			{
+				//nothing to do for a file opened for reading
+			}
+		}
+		threadstates.clear();
+	}
+	
+	public boolean doInsert(DB db, Object threadstate)
+	{
+		return replay(db,(ThreadState)threadstate);
+	}
+	
+	public boolean doTransaction(DB db, Object threadstate)
+	{
+		return replay(db,(ThreadState)threadstate);
+	}
+	
+	/**
+	 * Replay the next operation of the thread's partition, returning false at the end of the trace.
+	 */
+	boolean replay(DB db, ThreadState state)
+	{
+		TraceRecord r;
+		try
+		{
+			r=state.next();
+		}
+		catch (IOException e)
+		{
+			System.err.println("Error reading trace file "+state.files.get(state.nextfile-1)+": "+e.getMessage());
+			return false;
+		}
+		if (r==null)
+		{
+			return false;
+		}
+		
+		if (timestampreplay)
+		{
+			long now=System.currentTimeMillis();
+			replaystart.compareAndSet(0,now);
+			if (r.hastimestamp)
+			{
+				long due=replaystart.get()+(long)((r.timestamp-traceorigin)/(1000*speedup));
+				if (due>now)
+				{
+					try
+					{
+						Thread.sleep(due-now);
+					}
+					catch (InterruptedException e)
+					{
+						//replay it now
+					}
+				}
+			}
+		}
+		
+		switch (r.operation)
+		{
+		case TraceFormat.READ:
+			db.read(table,r.key,fields(r),new HashMap<String,String>());
+			break;
+		case TraceFormat.SCAN:
+			db.scan(table,r.key,r.scanlength,fields(r),new Vector<HashMap<String,String>>());
+			break;
+		case TraceFormat.UPDATE:
+			db.update(table,r.key,values(r,state));
+			break;
+		case TraceFormat.INSERT:
+			db.insert(table,r.key,values(r,state));
+			break;
+		case TraceFormat.DELETE:
+			db.delete(table,r.key);
+			break;
+		}
+		return true;
+	}
+	
+	/**
+	 * The fields to read, or null to read all fields.
+	 */
+	HashSet<String> fields(TraceRecord r)
+	{
+		if (r.fieldcount==0)
+		{
+			return null;
+		}
+		HashSet<String> fields=new HashSet<String>();
+		for (int i=0; i<r.fieldcount; i++)
+		{
+			fields.add(r.fields[i]);
+		}
+		return fields;
+	}
+	
+	/**
+	 * Values of the recorded sizes for the fields to write.
+	 */
+	HashMap<String,String> values(TraceRecord r, ThreadState state)
+	{
+		HashMap<String,String> values=new HashMap<String,String>();
+		for (int i=0; i<r.fieldcount; i++)
+		{
+			values.put(r.fields[i],state.value(r.valuesizes[i]));
+		}
+		return values;
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.BitSet;
+
+/**
+ * Checks that FeistelPermutation is a bijection: every value of the range maps to a distinct value of the range, and
+ * values beyond the range stay in their own block. Run with "ant test"; exits with a non-zero status on failure.
+ */
+public class FeistelPermutationTest
+{
+	static int failures=0;
+
+	static void check(boolean condition, String message)
+	{
+		if (!condition)
+		{
+			System.err.println("FAILED: "+message);
+			failures++;
+		}
+	}
+
+	/**
+	 * Check every value of the first blocks of a range, including ranges that are not a power of two, so that the
+	 * cycle walk is exercised.
+	 */
+	static void testBijection(long range, long key)
+	{
+		FeistelPermutation permutation=new FeistelPermutation(range,key);
+		for (long block=0; block<3; block++)
+		{
+			BitSet seen=new BitSet((int)range);
+			for (long val=block*range; val<(block+1)*range; val++)
+			{
+				long image=permutation.permute(val);
+				if ( (image<block*range) || (image>=(block+1)*range) )
+				{
+					check(false,"range "+range+", key "+key+": "+val+" left its block, mapped to "+image);
+					return;
+				}
+				int offset=(int)(image-block*range);
+				if (seen.get(offset))
+				{
+					check(false,"range "+range+", key "+key+": "+val+" collided on "+image);
+					return;
+				}
+				seen.set(offset);
+			}
+		}
+	}
+
+	static void testBijections()
+	{
+		long[] ranges={1,2,3,4,5,7,8,15,16,17,100,1000,1023,1024,1025,65537,1000003};
+		for (long range : ranges)
+		{
+			for (long key=0; key<3; key++)
+			{
+				testBijection(range,key);
+			}
+		}
+	}
+
+	static void testKeysDiffer()
+	{
+		FeistelPermutation a=new FeistelPermutation(1000,0);
+		FeistelPermutation b=new FeistelPermutation(1000,1);
+		int same=0;
+		for (long val=0; val<1000; val++)
+		{
+			if (a.permute(val)==b.permute(val))
+			{
+				same++;
+			}
+		}
+		check(same<100,"keys 0 and 1 agree on "+same+" of 1000 values");
+	}
+
+	static void testInvalidRange()
+	{
+		for (long range : new long[] {0,-1,FeistelPermutation.MAX_RANGE+1})
+		{
+			try
+			{
+				new FeistelPermutation(range,0);
+				check(false,"range "+range+" was accepted");
+			}
+			catch (IllegalArgumentException e)
+			{
+				//expected
+			}
+		}
+	}
+
+	public static void main(String[] args)
+	{
+		testBijections();
+		testKeysDiffer();
+		testInvalidRange();
+		if (failures>0)
+		{
+			System.exit(1);
+		}
+		System.out.println("FeistelPermutationTest passed");
+	}
+}
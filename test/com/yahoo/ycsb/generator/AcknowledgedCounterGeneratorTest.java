@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * Checks that AcknowledgedCounterGenerator only exposes acknowledged values, and that a value that stays outstanding
+ * does not stall the acknowledgements of later ones. Run with "ant test"; exits with a non-zero status on failure.
+ */
+public class AcknowledgedCounterGeneratorTest
+{
+	static int failures=0;
+
+	static void check(boolean condition, String message)
+	{
+		if (!condition)
+		{
+			System.err.println("FAILED: "+message);
+			failures++;
+		}
+	}
+
+	static void testOutOfOrder()
+	{
+		AcknowledgedCounterGenerator counter=new AcknowledgedCounterGenerator(10);
+		check(counter.lastLong()==9,"values below the start should count as acknowledged");
+		long a=counter.nextLong();
+		long b=counter.nextLong();
+		long c=counter.nextLong();
+		counter.acknowledge(c);
+		counter.acknowledge(b);
+		check(counter.lastLong()==9,"limit passed the outstanding value "+a+": "+counter.lastLong());
+		counter.acknowledge(a);
+		check(counter.lastLong()==c,"limit should reach "+c+" once all are acknowledged, was "+counter.lastLong());
+	}
+
+	static void testStalledValue()
+	{
+		//one value stays outstanding while more than a window of later values is acknowledged, as if its insert
+		//were stuck; this used to wait forever
+		AcknowledgedCounterGenerator counter=new AcknowledgedCounterGenerator(0);
+		long stalled=counter.nextLong();
+		long last=-1;
+		for (int i=0; i<AcknowledgedCounterGenerator.WINDOW_SIZE+100; i++)
+		{
+			last=counter.nextLong();
+			counter.acknowledge(last);
+		}
+		check(counter.lastLong()==last,"limit should be advanced past the stalled value to "+last+", was "+counter.lastLong());
+
+		//the late acknowledgement is ignored, and later values still advance the limit
+		counter.acknowledge(stalled);
+		long next=counter.nextLong();
+		counter.acknowledge(next);
+		check(counter.lastLong()==next,"limit should reach "+next+" after a late acknowledgement, was "+counter.lastLong());
+	}
+
+	public static void main(String[] args)
+	{
+		testOutOfOrder();
+		testStalledValue();
+		if (failures>0)
+		{
+			System.exit(1);
+		}
+		System.out.println("AcknowledgedCounterGeneratorTest passed");
+	}
+}
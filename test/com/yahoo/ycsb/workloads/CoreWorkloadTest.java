@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Runs transaction phases of CoreWorkload that start with no records, which used to fail with an ArithmeticException
+ * when choosing a key before any key was live. Run with "ant test"; exits with a non-zero status on failure.
+ */
+public class CoreWorkloadTest
+{
+	/**
+	 * A DB that only counts the operations it is given.
+	 */
+	static class CountingDB extends DB
+	{
+		int reads;
+		int scans;
+		int updates;
+		int inserts;
+		int deletes;
+		HashSet<String> keys=new HashSet<String>();
+
+		public int read(String table, String key, Set<String> fields, HashMap<String,String> result)
+		{
+			reads++;
+			return 0;
+		}
+
+		public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,String>> result)
+		{
+			scans++;
+			return 0;
+		}
+
+		public int update(String table, String key, HashMap<String,String> values)
+		{
+			updates++;
+			return 0;
+		}
+
+		public int insert(String table, String key, HashMap<String,String> values)
+		{
+			inserts++;
+			keys.add(key);
+			return 0;
+		}
+
+		public int delete(String table, String key)
+		{
+			deletes++;
+			return 0;
+		}
+	}
+
+	static int failures=0;
+
+	static void check(boolean condition, String message)
+	{
+		if (!condition)
+		{
+			System.err.println("FAILED: "+message);
+			failures++;
+		}
+	}
+
+	/**
+	 * Run operations transactions with no records to start with, and return the DB they were issued to.
+	 */
+	static CountingDB run(Properties props, int operations) throws Exception
+	{
+		props.setProperty("recordcount","0");
+		Measurements.setProperties(props);
+		CoreWorkload workload=new CoreWorkload();
+		workload.init(props);
+		Object state=workload.initThread(props,0,1);
+		CountingDB db=new CountingDB();
+		for (int i=0; i<operations; i++)
+		{
+			check(workload.doTransaction(db,state),"doTransaction returned false");
+		}
+		workload.cleanup();
+		return db;
+	}
+
+	static void testReadsBeforeFirstInsert() throws Exception
+	{
+		for (String distribution : new String[] {"uniform","zipfian","hotspot","latest"})
+		{
+			testReadsBeforeFirstInsert(distribution);
+		}
+	}
+
+	static void testReadsBeforeFirstInsert(String distribution) throws Exception
+	{
+		Properties props=new Properties();
+		props.setProperty("requestdistribution",distribution);
+		props.setProperty("operationcount","10000");
+		props.setProperty("readproportion","0.3");
+		props.setProperty("updateproportion","0.2");
+		props.setProperty("scanproportion","0.2");
+		props.setProperty("readmodifywriteproportion","0.2");
+		props.setProperty("insertproportion","0.1");
+		CountingDB db=run(props,10000);
+		check(db.inserts>0,distribution+": no inserts were issued");
+		check(db.reads>0,distribution+": no reads were issued once keys were live");
+		check(db.reads+db.scans+db.updates+db.inserts>=10000,distribution+": operations were skipped");
+	}
+
+	static void testOnlyReadsAndScans() throws Exception
+	{
+		//with no inserts in the mix, every transaction becomes an insert until one is acknowledged
+		Properties props=new Properties();
+		props.setProperty("readproportion","0.5");
+		props.setProperty("updateproportion","0");
+		props.setProperty("scanproportion","0.5");
+		props.setProperty("insertproportion","0");
+		CountingDB db=run(props,1000);
+		check(db.inserts==1,"expected one insert, got "+db.inserts);
+		check(db.reads+db.scans==999,"expected 999 reads and scans, got "+(db.reads+db.scans));
+	}
+
+	static void testDeletesOvertakingInserts() throws Exception
+	{
+		Properties props=new Properties();
+		props.setProperty("readproportion","0.4");
+		props.setProperty("updateproportion","0");
+		props.setProperty("insertproportion","0.1");
+		props.setProperty("deleteproportion","0.5");
+		CountingDB db=run(props,10000);
+		check(db.deletes<db.inserts,"deleted "+db.deletes+" of "+db.inserts+" inserted records");
+	}
+
+	static void testPermutedInserts() throws Exception
+	{
+		//the permutation is sized from the expected inserts when there are no records to start with
+		Properties props=new Properties();
+		props.setProperty("insertorder","permuted");
+		props.setProperty("operationcount","1000");
+		props.setProperty("readproportion","0.5");
+		props.setProperty("updateproportion","0");
+		props.setProperty("insertproportion","0.5");
+		CountingDB db=run(props,1000);
+		check(db.inserts>0,"permuted: no inserts were issued");
+		check(db.keys.size()==db.inserts,"permuted: "+db.inserts+" inserts went to "+db.keys.size()+" keys");
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		testReadsBeforeFirstInsert();
+		testOnlyReadsAndScans();
+		testDeletesOvertakingInserts();
+		testPermutedInserts();
+		if (failures>0)
+		{
+			System.exit(1);
+		}
+		System.out.println("CoreWorkloadTest passed");
+	}
+}